@@ -0,0 +1,141 @@
+import Exceptions.PuzzleException;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.function.IntFunction;
+
+/**
+ * The AllocationCheck class measures how many bytes the solver's hot paths allocate per call, using the JVM's count
+ * of bytes allocated by the current thread, and compares each with a budget. Each operation is run several rounds to
+ * let the JIT compiler settle, and only the last round is measured. Inputs that an operation changes, such as a Board
+ * to solve, are prepared before the round so their own allocation is not counted.
+ *
+ * It prints the bytes per call and budget of every operation and exits with status 1 if any is over budget, so it can
+ * be run as a build step. When an allocation is removed on purpose, lower its budget here so it cannot come back.
+ *
+ * Usage: java AllocationCheck [--report]
+ * With --report, the measurements are printed but budgets are not enforced.
+ */
+public class AllocationCheck {
+
+	//========== State ==========//
+
+	private static final int ROUNDS = 5;		// Rounds run per operation, of which only the last is measured
+
+	private static final com.sun.management.ThreadMXBean THREADS =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	/**
+	 * One call of a measured operation
+	 */
+	private interface Step<T> {
+		void run(T input) throws PuzzleException;
+	}
+
+	private final ArrayList<String> failures = new ArrayList<>();
+	private long overhead;		// Bytes counted for a round of one call that does nothing
+
+	//========== Main ==========//
+
+	public static void main(String[] args) throws PuzzleException {
+		boolean enforce = args.length == 0 || !args[0].equals("--report");
+		if (!THREADS.isThreadAllocatedMemorySupported()) {
+			System.out.println("This JVM does not count allocated bytes per thread");
+			return;
+		}
+		THREADS.setThreadAllocatedMemoryEnabled(true);
+		AllocationCheck check = new AllocationCheck();
+		check.overhead = check.measure(1, i -> null, input -> { });
+		System.out.println("Operation                                  Bytes/call      Budget");
+
+		// Tile and Ship helpers, on a puzzle that needs every strategy up to look ahead
+		Board board = Reader.readPuzzle(10);
+		Tile tile = board.TILES[2][1];
+		check.budget("Tile.getWaterDirections", 0, 10000, i -> tile, Tile::getWaterDirections);
+		check.budget("Tile.getShipDirections", 0, 10000, i -> tile, Tile::getShipDirections);
+		check.budget("Tile.getAdjacentNeighbors", 40, 10000, i -> tile, Tile::getAdjacentNeighbors);
+		check.budget("Ship(board, start, end)", 160, 10000, i -> tile,
+				start -> new Ship(board, start, board.TILES[2][4]));
+		check.budget("Logger.record, 100 lines", 300_000, 100, i -> new Logger(), log -> {
+			for (int line = 0; line < 100; line++) log.record("Changed tile at [1,2] from BLANK to WATER");
+		});
+
+		// Candidate queries
+		Solver.solveEasiest(board);
+		board.getShipList(false);
+		check.budget("Board.getShipList(size), cached", 0, 10000, i -> board, b -> b.getShipList(3, false));
+		check.budget("Board.getCovering, cached", 0, 10000, i -> board, b -> b.getCovering(b.TILES[4][4]));
+		check.budget("Board.getCoverCount, cached", 0, 10000, i -> board, b -> b.getCoverCount(b.TILES[4][4], 2));
+		check.budget("Board.generateShips", 4_000, 1000, i -> board, b -> {
+			b.modified(b.TILES[0][0]);
+			b.getShipList(1, false);
+		});
+
+		// Strategy passes, from the point where the easiest strategies make no more progress. The higher levels change a
+		// fresh copy each call
+		check.budget("Strategy 1, no progress", 1_000, 1000, i -> board, b -> Solver.execute(b, 1));
+		check.budget("Strategy 2, no progress", 1_000, 1000, i -> board, b -> Solver.execute(b, 2));
+		long[] strategyBudget = {1_000, 16_000, 20_000, 6_000, 10_000, 70_000, 100_000};
+		for (int level = 3; level <= Solver.STRATEGIES.length; level++) {
+			int strategy = level;
+			check.budget("Strategy " + level + " (" + Solver.STRATEGIES[level - 1] + ")", strategyBudget[level - 3], 50,
+					i -> board.cloneBoard(), b -> Solver.execute(b, strategy));
+		}
+
+		// Full solves
+		long[] dynamicBudget = {350_000, 420_000, 350_000, 380_000, 420_000, 350_000, 1_000_000, 350_000, 650_000,
+				800_000, 480_000, 2_200_000};
+		for (int id = 1; id <= dynamicBudget.length; id++) {
+			Board puzzle = Reader.readPuzzle(id);
+			check.budget("Solver.solveDynamic, puzzle " + id, dynamicBudget[id - 1], 10, i -> puzzle.cloneBoard(),
+					Solver::solveDynamic);
+		}
+		Board puzzle = Reader.readPuzzle(10);
+		check.budget("DomainPropagator.propagate, puzzle 10", 80_000, 10, i -> puzzle.cloneBoard(),
+				DomainPropagator::propagate);
+		check.budget("Solver.solveFast, puzzle 10", 1_100_000, 10, i -> puzzle.cloneBoard(), Solver::solveFast);
+		check.budget("SatBackend.solve, puzzle 10", 1_600_000, 10, i -> puzzle.cloneBoard(), SatBackend::solve);
+
+		if (check.failures.isEmpty()) {
+			System.out.println("Every operation is within budget");
+		} else {
+			System.out.println(check.failures.size() + " operations over budget: " + String.join(", ", check.failures));
+			if (enforce) System.exit(1);
+		}
+	}
+
+	//========== Private Methods ==========//
+
+	/**
+	 * Measures an operation and records a failure if it allocates more than its budget
+	 * @param name - The name to report
+	 * @param budget - The most bytes allowed per call
+	 * @param runs - The number of calls per round
+	 * @param setup - Prepares the input for each call
+	 * @param step - The operation
+	 */
+	private <T> void budget(String name, long budget, int runs, IntFunction<T> setup, Step<T> step) throws PuzzleException {
+		long bytes = Math.max(measure(runs, setup, step) - overhead, 0) / runs;
+		boolean over = bytes > budget;
+		System.out.printf(Locale.ROOT, "%-40s %12d %11d%s%n", name, bytes, budget, over ? "  OVER" : "");
+		if (over) failures.add(name);
+	}
+
+	/**
+	 * Runs an operation for ROUNDS rounds
+	 * @return The bytes allocated by the last round
+	 */
+	private <T> long measure(int runs, IntFunction<T> setup, Step<T> step) throws PuzzleException {
+		long bytes = 0;
+		ArrayList<T> inputs = new ArrayList<>(runs);
+		for (int round = 0; round < ROUNDS; round++) {
+			inputs.clear();
+			for (int i = 0; i < runs; i++) inputs.add(setup.apply(i));
+			long start = THREADS.getCurrentThreadAllocatedBytes();
+			for (int i = 0; i < runs; i++) step.run(inputs.get(i));
+			bytes = THREADS.getCurrentThreadAllocatedBytes() - start;
+		}
+		return bytes;
+	}
+}
@@ -0,0 +1,184 @@
+import Exceptions.InvalidMoveException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The Batch class solves a stream of puzzles without any prompts, writing one line of JSON per puzzle. Puzzles are
+ * read one at a time, parsed and solved on a pool of workers, and written as they complete. At most a fixed window of
+ * puzzles is held in memory at once, however long the input is.
+ *
+ * In ordered mode results are written in the order the puzzles were read, so a slow puzzle holds back the ones behind
+ * it. In unordered mode each result is written as soon as it is ready.
+ */
+class Batch {
+
+	//========== State ==========//
+
+	private final int workers;			// The number of puzzles solved at once
+	private final int window;			// The most puzzles read but not yet written
+	private final boolean ordered;		// Whether results are written in input order
+	private final boolean withLog;		// Whether results include the log of actions taken
+	private final boolean rate;			// Whether puzzles are rated, or only solved
+	private final boolean sat;			// Whether unrated puzzles are solved by SatBackend
+	private final DifficultyStore store;	// Ratings of puzzles already seen, or null to solve every puzzle
+
+	//========== Constructor ==========//
+
+	/**
+	 * Creates a batch runner
+	 * @param workers - The number of puzzles solved at once
+	 * @param ordered - Whether results are written in input order
+	 * @param withLog - Whether results include the log of actions taken
+	 * @param rate - Whether puzzles are rated, or only solved
+	 * @param sat - Whether unrated puzzles are solved by SatBackend
+	 * @param store - Ratings of puzzles already seen, or null to solve every puzzle
+	 */
+	Batch(int workers, boolean ordered, boolean withLog, boolean rate, boolean sat, DifficultyStore store) {
+		this.workers = workers;
+		this.window = workers * 4;
+		this.ordered = ordered;
+		this.withLog = withLog;
+		this.rate = rate;
+		this.sat = sat;
+		this.store = store;
+	}
+
+	//========== Methods ==========//
+
+	/**
+	 * Solves every puzzle in a stream and writes the results
+	 * @param in - The puzzles, in the format of Puzzles.txt or Board.toString
+	 * @param out - Where to write one JSON line per puzzle
+	 * @return The number of puzzles read
+	 * @throws IOException if the input cannot be read
+	 * @throws InterruptedException if interrupted while waiting for results
+	 */
+	int run(BufferedReader in, PrintStream out) throws IOException, InterruptedException {
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		try {
+			return ordered ? runOrdered(in, out, pool) : runUnordered(in, out, pool);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	//========== Private Methods ==========//
+
+	/**
+	 * Queues each puzzle's result in input order, while a separate thread writes them as the head of the queue completes.
+	 * A puzzle whose worker failed is written as an error. If the writer itself fails, reading stops and its failure is
+	 * thrown rather than leaving the reader waiting on a full queue
+	 */
+	private int runOrdered(BufferedReader in, PrintStream out, ExecutorService pool) throws IOException, InterruptedException {
+		BlockingQueue<Future<String>> pending = new ArrayBlockingQueue<>(window);
+		FutureTask<String> end = new FutureTask<>(() -> null);
+		end.run();
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		Thread writer = new Thread(() -> {
+			try {
+				int written = 0;
+				Future<String> next;
+				while ((next = pending.take()) != end) {
+					String name = "#" + (++written);
+					String json;
+					try {
+						json = next.get();
+					} catch (ExecutionException e) {
+						json = SolveResult.error(name, e.getCause().toString()).toJson();
+					}
+					out.println(json);
+				}
+				out.flush();
+			} catch (InterruptedException e) {
+				// The reader failed, so nothing more will be queued
+			} catch (Throwable e) {
+				failure.set(e);
+			}
+		}, "batch-writer");
+		writer.start();
+		int count = 0;
+		try {
+			String text;
+			while ((text = Reader.nextPuzzle(in)) != null) {
+				String name = "#" + (++count);
+				String puzzle = text;
+				enqueue(pending, pool.submit(() -> solve(name, puzzle)), writer, failure);
+			}
+			enqueue(pending, end, writer, failure);
+			writer.join();
+		} finally {
+			writer.interrupt();
+		}
+		if (failure.get() != null) throw new IllegalStateException("Writing results failed", failure.get());
+		return count;
+	}
+
+	/**
+	 * Adds a result to the queue for the writer, checking while the queue is full that the writer is still running
+	 * @throws IllegalStateException if the writer has stopped
+	 */
+	private static void enqueue(BlockingQueue<Future<String>> pending, Future<String> result, Thread writer,
+								AtomicReference<Throwable> failure) throws InterruptedException {
+		while (!pending.offer(result, 100, TimeUnit.MILLISECONDS)) {
+			if (!writer.isAlive()) throw new IllegalStateException("Writing results failed", failure.get());
+		}
+	}
+
+	/**
+	 * Lets each worker write its own result when it finishes, holding back the reader once the window is full
+	 */
+	private int runUnordered(BufferedReader in, PrintStream out, ExecutorService pool) throws IOException, InterruptedException {
+		Semaphore permits = new Semaphore(window);
+		int count = 0;
+		String text;
+		while ((text = Reader.nextPuzzle(in)) != null) {
+			String name = "#" + (++count);
+			String puzzle = text;
+			permits.acquire();
+			pool.execute(() -> {
+				try {
+					String json = solve(name, puzzle);
+					synchronized (out) {
+						out.println(json);
+					}
+				} finally {
+					permits.release();
+				}
+			});
+		}
+		permits.acquire(window);
+		out.flush();
+		return count;
+	}
+
+	/**
+	 * Parses, solves and formats a single puzzle
+	 * @param name - The name to give the puzzle if it has no identifier line
+	 * @param text - The text of the puzzle
+	 * @return A single line of JSON
+	 */
+	private String solve(String name, String text) {
+		Board board;
+		try {
+			board = Reader.parse(name, text);
+		} catch (IllegalArgumentException | InvalidMoveException e) {
+			return SolveResult.error(name, e.getMessage()).toJson();
+		}
+		try {
+			if (store != null && rate) {
+				long start = System.nanoTime();
+				DifficultyStore.Record record = store.rate(board);
+				return SolveResult.stored(board, record, System.nanoTime() - start).toJson();
+			}
+			return SolveResult.solve(board, withLog, rate, sat).toJson();
+		} catch (IOException e) {
+			return SolveResult.error(board.NAME, "Store failed: " + e.getMessage()).toJson();
+		} catch (RuntimeException e) {
+			return SolveResult.error(board.NAME, e.toString()).toJson();
+		}
+	}
+}
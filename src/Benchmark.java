@@ -0,0 +1,75 @@
+import Exceptions.PuzzleException;
+
+/**
+ * The Benchmark class measures how the cost of solving grows with the size of the board. For each board size it
+ * generates a fixed set of random puzzles and reports the average time to generate ship locations and to solve.
+ *
+ * Usage: java Benchmark [puzzles per size] [size ...]
+ */
+public class Benchmark {
+
+	private static final int WARMUP = 20;	// Puzzles solved before measuring each size
+
+	public static void main(String[] args) {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+		int[] sizes = {10, 15, 20};
+		if (args.length > 1) {
+			sizes = new int[args.length - 1];
+			for (int i = 1; i < args.length; i++) sizes[i - 1] = Integer.parseInt(args[i]);
+		}
+		System.out.println("Size  Fleet          Ships(ms)  Solve(ms)  Solve(us/tile)  Solved  Avg level");
+		for (int size : sizes) {
+			int[] fleet = fleetFor(size);
+			int clues = size * size / 3;
+			run(new Generator(size), size, fleet, clues, WARMUP);
+			Generator generator = new Generator(size * 31L);
+			double[] result = run(generator, size, fleet, clues, count);
+			System.out.printf("%-5d %-14s %9.3f  %9.3f  %14.2f  %5.0f%%  %9.2f%n", size, fleetString(fleet),
+					result[0], result[1], result[1] * 1000 / (size * size), result[2] * 100, result[3]);
+		}
+	}
+
+	/**
+	 * Gets the fleet used for a board size: the largest ship grows by one for every five rows beyond ten
+	 * @param size - The number of rows and columns
+	 * @return An array of ship counts, where index 0 is the number of submarines
+	 */
+	static int[] fleetFor(int size) {
+		return Board.classicFleet(Math.max(Reader.CLASSIC_MAX_SHIP_SIZE, 4 + (size - 10) / 5));
+	}
+
+	/**
+	 * Solves a number of generated puzzles
+	 * @return The mean ship generation time (ms), mean solve time (ms), fraction solved and mean level
+	 */
+	private static double[] run(Generator generator, int size, int[] fleet, int clues, int count) {
+		long shipNanos = 0;
+		long solveNanos = 0;
+		int solved = 0;
+		long levels = 0;
+		for (int i = 0; i < count; i++) {
+			Board board = generator.puzzle("Benchmark " + i, size, fleet, clues);
+			long start = System.nanoTime();
+			board.getShipList(false);
+			shipNanos += System.nanoTime() - start;
+			start = System.nanoTime();
+			try {
+				levels += Solver.solveDynamic(board);
+				if (Solver.isComplete(board)) solved++;
+			} catch (PuzzleException e) {
+				// Generated puzzles are valid, so a contradiction means the solver made a wrong deduction
+				System.out.println(board.NAME + ": " + e.getMessage());
+			}
+			solveNanos += System.nanoTime() - start;
+		}
+		return new double[] {shipNanos / 1e6 / count, solveNanos / 1e6 / count, (double) solved / count, (double) levels / count};
+	}
+
+	private static String fleetString(int[] fleet) {
+		StringBuilder result = new StringBuilder("{");
+		for (int i = 0; i < fleet.length; i++) {
+			result.append(i == 0 ? "" : ",").append(fleet[i]);
+		}
+		return result.append("}").toString();
+	}
+}
@@ -1,14 +1,16 @@
 import Enums.Dir;
 import Enums.Lane;
 import Enums.Value;
+import Events.CloneEvent;
+import Events.Recording;
+import Events.ShipListEvent;
 
 import java.io.*;
 import java.util.ArrayList;
-
-/*
- TODO
-  Add error checking to Board constructor array sizes
- */
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
 
 /**
  * The Board class holds all the state related to the Battleship puzzle
@@ -21,16 +23,36 @@ public class Board implements Serializable {
 	Logger log;								// An instance of Logger to record actions
 	final int SIZE;							// The size of the puzzle grid, both height and width
 	final int MAX_SHIP_SIZE;				// The length of the largest size ship in the puzzle
+	private final int[] FLEET;				// The number of ships of each size in the puzzle, indexed by size - 1
 	private final int[] ROW_SUM;			// An array indicating how many tiles in each row must contain a ship
 	private final int[] COL_SUM;			// An array indicating how many tiles in each column must contain a ship
 	final Tile[][] TILES;					// A 2D-array of Tile objects representing the puzzle grid
 	private ArrayList<Ship>[][] shipList;	// A list of potential ship locations in the puzzle
-	private ArrayList<Ship> shipBlackList;	// A list of ship locations that have been proven invalid
+	private HashSet<Ship> shipBlackList;	// A set of ship locations that have been proven invalid
+	private int version;					// Incremented whenever a tile or the blacklist changes
+	private int shipListVersion = -1;		// The version of the board that shipList was generated for
+	private final int[][] laneVersion;		// The version at which each row and column last changed, indexed by lane then idx
+	private ArrayList<Ship>[][] located;	// The locations made for each row and column, and the subs in each row, indexed by lane then idx
+	private int[][] generated;				// The lane version each lane's locations were made at, or -1 to make them again
+	private boolean[] complete;				// Whether every ship of each size was confirmed, indexed by size - 1
+	private transient ArrayList<Ship>[] covering;	// The unconfirmed ship locations covering each tile, or null until needed
+	private transient int[][] coverCount;	// The number of unconfirmed locations of each size covering each tile, indexed by size - 1
+	private transient HashMap<Ship, int[]> lookAhead;	// Ship locations that passed look ahead, with the version, fleet and lanes to check
+	private transient BitSet[][] laneMask;	// Cached masks of the tile indexes in each row and column
+	private transient Tile.Worklist worklist;	// Pending tile updates, shared by every Tile on this board
+	private transient int[] trail;			// The index and previous value of each tile changed since beginTrail
+	private transient int trailSize;		// The number of changes in trail
+	private transient boolean recording;	// Whether tile changes are being added to trail
+	private transient int[][] trailLanes;	// The lane versions at beginTrail, restored by rollbackTrail
+
+	private static final Value[] VALUES = Value.values();
+	private static final int SUBS = 2;		// The index in located of the subs in each row, after the two lanes
 
 	//========== Constructor ==========//
 
 	/**
-	 * Creates a board filled with blank tiles
+	 * Creates a board filled with blank tiles, using the classic fleet of one ship of the largest size, two of the next
+	 * size, and so on down to the submarines
 	 * @param name String identifier
 	 * @param size The number of rows and columns
 	 * @param maxShipSize The largest ship on the board
@@ -38,15 +60,45 @@ public class Board implements Serializable {
 	 * @param colSum Array of sums of ship tiles in each column
 	 */
 	Board(String name, int size, int maxShipSize, int[] rowSum, int[] colSum) {
+		this(name, size, classicFleet(maxShipSize), rowSum, colSum);
+	}
+
+	/**
+	 * Creates a board filled with blank tiles
+	 * @param name String identifier
+	 * @param size The number of rows and columns
+	 * @param fleet The number of ships of each size, where fleet[0] is the number of submarines
+	 * @param rowSum Array of sums of ship tiles in each row
+	 * @param colSum Array of sums of ship tiles in each column
+	 * @throws IllegalArgumentException if the arrays do not match the size, or hold counts that cannot be right
+	 */
+	Board(String name, int size, int[] fleet, int[] rowSum, int[] colSum) {
+		if (size < 1) throw new IllegalArgumentException(name + ": size must be at least 1");
+		if (rowSum.length != size || colSum.length != size) {
+			throw new IllegalArgumentException(name + ": expected " + size + " row and column sums");
+		}
+		for (int i = 0; i < size; i++) {
+			if (rowSum[i] < 0 || rowSum[i] > size || colSum[i] < 0 || colSum[i] > size) {
+				throw new IllegalArgumentException(name + ": lane sums must be between 0 and " + size);
+			}
+		}
+		if (fleet.length == 0) throw new IllegalArgumentException(name + ": the fleet is empty");
+		for (int count : fleet) {
+			if (count < 0) throw new IllegalArgumentException(name + ": ship counts cannot be negative");
+		}
 		this.NAME = name;
 		this.log = new Logger();
 		this.SIZE = size;
+		int maxShipSize = fleet.length;
+		while (maxShipSize > 1 && fleet[maxShipSize - 1] == 0) maxShipSize--;
 		this.MAX_SHIP_SIZE = maxShipSize;
+		this.FLEET = fleet;
 		this.ROW_SUM = rowSum;
 		this.COL_SUM = colSum;
 		TILES = new Tile[size][size];
-		shipBlackList = new ArrayList<>();
+		shipBlackList = new HashSet<>();
 		shipList = new ArrayList[MAX_SHIP_SIZE][2];
+		laneVersion = new int[2][size];
 		for (int i = 0; i < size; i++) {
 			for (int j = 0; j < size; j++) {
 				TILES[i][j] = new Tile(this, i, j);
@@ -144,7 +196,29 @@ public class Board implements Serializable {
 	 * @return The number of ships as an integer
 	 */
 	int getMissingShips(int size) {
-		return MAX_SHIP_SIZE - size + 1 - getShipList(size, true).size();
+		return getFleet(size) - getShipList(size, true).size();
+	}
+
+	/**
+	 * Gets the total number of ships of the specified size in the puzzle
+	 * @param size - The length of the ship in tiles, between 1 and MAX_SHIP_SIZE
+	 * @return The number of ships as an integer
+	 */
+	int getFleet(int size) {
+		return size <= FLEET.length ? FLEET[size - 1] : 0;
+	}
+
+	/**
+	 * Gets the classic fleet for a given largest ship: one ship of the largest size, two of the next size, and so on
+	 * @param maxShipSize - The length of the largest ship
+	 * @return An array of ship counts, where index 0 is the number of submarines
+	 */
+	static int[] classicFleet(int maxShipSize) {
+		int[] fleet = new int[maxShipSize];
+		for (int i = 0; i < maxShipSize; i++) {
+			fleet[i] = maxShipSize - i;
+		}
+		return fleet;
 	}
 
 	/**
@@ -179,6 +253,45 @@ public class Board implements Serializable {
 		}
 	}
 
+	/**
+	 * Gets the tile at the specified index, where index = row * SIZE + col
+	 * @param index - The tile index, between 0 and SIZE*SIZE-1
+	 * @return An instance of Tile
+	 */
+	Tile tile(int index) {
+		return TILES[index / SIZE][index % SIZE];
+	}
+
+	/**
+	 * Gets the stack of pending tile updates for this board, creating it on first use
+	 * @return The Worklist shared by every Tile on this board
+	 */
+	Tile.Worklist worklist() {
+		if (worklist == null) worklist = new Tile.Worklist(SIZE * 2);
+		return worklist;
+	}
+
+	/**
+	 * Gets a mask of the tile indexes in the specified lane. The returned BitSet is shared and must not be modified
+	 * @param lane - The type or lane, row or column
+	 * @param idx - The lane index, between 0 and SIZE-1
+	 * @return A BitSet with one bit set for each tile in the lane
+	 */
+	BitSet laneMask(Lane lane, int idx) {
+		if (laneMask == null) {
+			laneMask = new BitSet[2][SIZE];
+			for (int i = 0; i < SIZE; i++) {
+				laneMask[0][i] = new BitSet(SIZE * SIZE);
+				laneMask[1][i] = new BitSet(SIZE * SIZE);
+				for (int j = 0; j < SIZE; j++) {
+					laneMask[0][i].set(i * SIZE + j);
+					laneMask[1][i].set(j * SIZE + i);
+				}
+			}
+		}
+		return laneMask[lane == Lane.ROW ? 0 : 1][idx];
+	}
+
 	/**
 	 * Gets a list of either confirmed or unconfirmed ships in the board
 	 * @param confirmed - Whether the returned list of ships should be confirmed or just potential locations of ships
@@ -204,11 +317,34 @@ public class Board implements Serializable {
 		return shipList[size - 1][confirmed? 1 : 0];
 	}
 
+	/**
+	 * Gets the potential ship locations that cover a tile, which are the unconfirmed ships of every size containing it
+	 * @param tile - The tile to look up
+	 * @return A list of Ship objects, which is updated as the board changes and must not be modified
+	 */
+	ArrayList<Ship> getCovering(Tile tile) {
+		buildCoverage();
+		return covering[tile.index()];
+	}
+
+	/**
+	 * Gets the number of potential locations of one ship size that cover a tile
+	 * @param tile - The tile to look up
+	 * @param size - The length of the ship in tiles, between 1 and MAX_SHIP_SIZE
+	 * @return The number of unconfirmed ships of that size containing the tile
+	 */
+	int getCoverCount(Tile tile, int size) {
+		buildCoverage();
+		return coverCount[size - 1][tile.index()];
+	}
+
 	/**
 	 * Creates a deep copy of the board
 	 * @return A new instance of Board
 	 */
 	Board cloneBoard() {
+		CloneEvent event = Recording.isActive() ? new CloneEvent() : null;
+		if (event != null) event.begin();
 		try {
 			ByteArrayOutputStream baos = new ByteArrayOutputStream();
 			ObjectOutputStream oos = new ObjectOutputStream(baos);
@@ -218,6 +354,11 @@ public class Board implements Serializable {
 			Board clone = (Board) ois.readObject();
 			clone.NAME = "Clone of " + clone.NAME + " (" + (int)(Math.random()*10000) + ")";
 			clone.log = new Logger();
+			if (event != null && event.shouldCommit()) {
+				event.puzzle = NAME;
+				event.bytes = baos.size();
+				event.commit();
+			}
 			return clone;
 		}
 		catch (Exception e) {
@@ -232,119 +373,313 @@ public class Board implements Serializable {
 	 */
 	void blacklist(Ship ship) {
 		shipBlackList.add(ship);
+		version++;
+		// Make the lane the location was made for again, so it is left out
+		if (generated != null) {
+			if (ship.lane() == Lane.COL) generated[Lane.COL.ordinal()][ship.start().COL] = -1;
+			else generated[Lane.ROW.ordinal()][ship.start().ROW] = -1;
+		}
 		if (log != null) {
 			log.record("Blacklisted: " + ship);
 			log.setChanged();
 		}
 	}
 
-	//========== Private Methods ==========//
+	/**
+	 * Starts recording every tile change, so that they can all be undone by rollbackTrail
+	 */
+	void beginTrail() {
+		trailSize = 0;
+		recording = true;
+		if (trailLanes == null) trailLanes = new int[2][SIZE];
+		for (int i = 0; i < 2; i++) System.arraycopy(laneVersion[i], 0, trailLanes[i], 0, SIZE);
+	}
+
+	/**
+	 * Undoes every tile change since beginTrail, most recent first, and stops recording. The ship lists are regenerated
+	 * on next use, since the version still increases, but each lane keeps the version it had at beginTrail because its
+	 * tiles are back as they were
+	 */
+	void rollbackTrail() {
+		recording = false;
+		for (int i = trailSize - 1; i >= 0; i--) {
+			tile(trail[i] / VALUES.length).restoreValue(VALUES[trail[i] % VALUES.length]);
+		}
+		trailSize = 0;
+		for (int i = 0; i < 2; i++) System.arraycopy(trailLanes[i], 0, laneVersion[i], 0, SIZE);
+	}
 
 	/**
-	 * Gets the tile at the specified row and column, if within bounds
-	 * @param row - The row index
-	 * @param col - The column index
-	 * @return An instance of Tile if the row and column are between 0 and SIZE-1, otherwise null
+	 * Records that a tile on the board is changing, so any cached ship locations must be regenerated. Called before the
+	 * new value is stored, so the trail can record the previous one
+	 * @param tile - The tile that is changing
 	 */
-	private Tile tile(int row, int col) {
-		if (row < this.SIZE && col < this.SIZE) return TILES[row][col];
-		else return null;
+	void modified(Tile tile) {
+		if (recording) {
+			if (trail == null) trail = new int[64];
+			if (trailSize == trail.length) trail = Arrays.copyOf(trail, trailSize * 2);
+			trail[trailSize++] = tile.index() * VALUES.length + tile.getValue().ordinal();
+		}
+		version++;
+		laneVersion[Lane.ROW.ordinal()][tile.ROW] = version;
+		laneVersion[Lane.COL.ordinal()][tile.COL] = version;
 	}
 
 	/**
-	 * Populates shipList with all the potential locations of ships on the board, excluding any blacklisted locations
+	 * Gets the version of the board at which a lane last changed
+	 * @param lane - The type or lane, row or column
+	 * @param idx - The lane index, between 0 and SIZE-1
+	 * @return The version, or 0 if no tile in the lane has changed since the board was created
+	 */
+	int getLaneVersion(Lane lane, int idx) {
+		return laneVersion[lane.ordinal()][idx];
+	}
+
+	/**
+	 * Gets the ship locations that have passed look ahead on this board, creating the map on first use. Clones start
+	 * with an empty map
+	 * @return A map from each ship location to the board version and fleet signature it was tested at, and the lanes
+	 * that must not change for the result to hold
+	 */
+	HashMap<Ship, int[]> lookAheadCache() {
+		if (lookAhead == null) lookAhead = new HashMap<>();
+		return lookAhead;
+	}
+
+	/**
+	 * Gets a number that changes whenever a tile or the blacklist changes
+	 * @return The version of the board
+	 */
+	int getVersion() {
+		return version;
+	}
+
+	//========== Private Methods ==========//
+
+	/**
+	 * Brings shipList up to date with the board, excluding any blacklisted locations. The locations are kept by the lane
+	 * they were made for and only made again for the lanes that changed since: a horizontal location depends on the
+	 * tiles and sum of its row, a vertical one on its column, and a sub on its row and the rows beside it. Once built,
+	 * the coverage index drops and adds the same locations, so it is not rebuilt for the whole board
 	 */
 	private void generateShips() {
+		if (shipListVersion == version) return;
+		shipListVersion = version;
+		ShipListEvent event = Recording.isActive() ? new ShipListEvent() : null;
+		if (event != null) event.begin();
+		if (located == null) {
+			@SuppressWarnings({"unchecked", "rawtypes"})
+			ArrayList<Ship>[][] lists = new ArrayList[3][SIZE];
+			located = lists;
+			for (ArrayList<Ship>[] kind : located) {
+				for (int idx = 0; idx < SIZE; idx++) kind[idx] = new ArrayList<>();
+			}
+			generated = new int[2][SIZE];
+			for (int[] lane : generated) Arrays.fill(lane, -1);
+			complete = new boolean[MAX_SHIP_SIZE];
+		}
+
+		// Lanes that changed since their locations were made
+		boolean[][] dirty = new boolean[2][SIZE];
+		for (int lane = 0; lane < 2; lane++) {
+			for (int idx = 0; idx < SIZE; idx++) dirty[lane][idx] = generated[lane][idx] != laneVersion[lane][idx];
+		}
+		boolean[] rows = dirty[Lane.ROW.ordinal()];
+		for (int idx = 0; idx < SIZE; idx++) {
+			if (rows[idx]) generateLane(Lane.ROW, idx);
+			if (dirty[Lane.COL.ordinal()][idx]) generateLane(Lane.COL, idx);
+			if (rows[idx] || idx > 0 && rows[idx - 1] || idx < SIZE - 1 && rows[idx + 1]) generateSubs(idx);
+		}
+		for (int lane = 0; lane < 2; lane++) System.arraycopy(laneVersion[lane], 0, generated[lane], 0, SIZE);
 
 		for (int i = 0; i < MAX_SHIP_SIZE; i++) {
 			shipList[i][0] = new ArrayList<>(); // Confirmed ships
 			shipList[i][1] = new ArrayList<>(); // Unconfirmed ships
 		}
+		// Merge the lanes back in order of start tile, each start giving its horizontal, vertical then sub locations
+		int[] down = new int[SIZE];
+		for (int row = 0; row < SIZE; row++) {
+			ArrayList<Ship> across = located[Lane.ROW.ordinal()][row];
+			ArrayList<Ship> subs = located[SUBS][row];
+			int a = 0;
+			int s = 0;
+			for (int col = 0; col < SIZE; col++) {
+				while (a < across.size() && across.get(a).start().COL == col) addShip(across.get(a++));
+				ArrayList<Ship> column = located[Lane.COL.ordinal()][col];
+				while (down[col] < column.size() && column.get(down[col]).start().ROW == row) addShip(column.get(down[col]++));
+				if (s < subs.size() && subs.get(s).start().COL == col) addShip(subs.get(s++));
+			}
+		}
+		// Check if size is complete
+		for (int i = 0; i < MAX_SHIP_SIZE; i++) {
+			boolean full = shipList[i][1].size() >= getFleet(i + 1);
+			if (full) shipList[i][0].clear();
+			if (full != complete[i]) {
+				complete[i] = full;
+				if (full) uncoverSize(i + 1);
+				else for (Ship ship : shipList[i][0]) cover(ship);
+			}
+		}
+		if (event != null && event.shouldCommit()) {
+			event.puzzle = NAME;
+			for (int i = 0; i < MAX_SHIP_SIZE; i++) {
+				event.candidates += shipList[i][0].size();
+				event.confirmed += shipList[i][1].size();
+			}
+			event.commit();
+		}
+	}
 
+	/**
+	 * Makes the horizontal locations in a row, or the vertical locations in a column, again
+	 * @param lane - The type of lane, row or column
+	 * @param idx - The lane index, between 0 and SIZE-1
+	 */
+	private void generateLane(Lane lane, int idx) {
+		uncoverLane(lane, idx);
+		ArrayList<Ship> list = located[lane.ordinal()][idx];
+		list.clear();
+		int free = getSum(lane, idx) - getSumShip(lane, idx);
+		Dir before = lane == Lane.ROW ? Dir.WEST : Dir.NORTH;
 		for (int i = 0; i < SIZE; i++) {
-			for (int j = 0; j < SIZE; j++) {
-				Tile start = TILES[i][j];
-				if (start.getValue() == Value.BLANK || start.getValue() == Value.SHIP_UNID || start.getValue() == Value.SHIP_NORTH || start.getValue() == Value.SHIP_WEST) {
-					// Create horizontal
-					if (!Tile.isShip(start.getNeighbor(Dir.WEST))) {
-						int sum = 0;
-						for (int k = 0; k < MAX_SHIP_SIZE && j + k < SIZE; k++) {
-							Tile cur = tile(i, j + k);
-							Tile next = tile(i, j + k + 1);
-							if (Tile.isWater(cur)) break;
-							if (!Tile.isShip(cur)) sum++;
-							if (k != 0 && !Tile.isShip(next) && getSum(Lane.ROW,i) - getSumShip(Lane.ROW,i) >= sum) {
-								Ship ship = new Ship(this,start,cur);
-								if (!shipBlackList.contains(ship)) {
-
-									if (ship.isConfirmed()) shipList[ship.size()-1][1].add(ship);
-									else shipList[ship.size()-1][0].add(ship);
-								}
-							}
-						}
-					}
-					// Create vertical
-					if (!Tile.isShip(start.getNeighbor(Dir.NORTH))) {
-						int sum = 0;
-						for (int k = 0; k < MAX_SHIP_SIZE && i + k < SIZE; k++) {
-							Tile cur = tile(i + k, j);
-							Tile next = tile(i + k + 1, j);
-							if (Tile.isWater(cur)) break;
-							if (!Tile.isShip(cur)) sum++;
-							if (k != 0 && !Tile.isShip(next) && getSum(Lane.COL,j) - getSumShip(Lane.COL,j) >= sum) {
-								Ship ship = new Ship(this,start,cur);
-								if (!shipBlackList.contains(ship)) {
-
-									if (ship.isConfirmed()) shipList[ship.size()-1][1].add(ship);
-									else shipList[ship.size()-1][0].add(ship);
-								}
-							}
-						}
+			Tile start = tile(lane, idx, i);
+			Value value = start.getValue();
+			if (value != Value.BLANK && value != Value.SHIP_UNID && value != Value.SHIP_NORTH && value != Value.SHIP_WEST) continue;
+			if (Tile.isShip(start.getNeighbor(before))) continue;
+			int sum = 0;
+			for (int k = 0; k < MAX_SHIP_SIZE && i + k < SIZE; k++) {
+				Tile cur = tile(lane, idx, i + k);
+				Tile next = i + k + 1 < SIZE ? tile(lane, idx, i + k + 1) : null;
+				if (Tile.isWater(cur)) break;
+				if (!Tile.isShip(cur)) sum++;
+				if (k != 0 && !Tile.isShip(next) && free >= sum) {
+					Ship ship = new Ship(this, start, cur);
+					if (!shipBlackList.contains(ship)) {
+						list.add(ship);
+						cover(ship);
 					}
 				}
-				// Create sub
-				if (start.getValue() == Value.BLANK || start.getValue() == Value.SHIP_UNID || start.getValue() == Value.SHIP_SUB) {
-					boolean valid = true;
-					for (Tile neighbor : start.getAdjacentNeighbors()) {
-						if (Tile.isShip(neighbor)) {
-							valid = false;
-							break;
-						}
-					}
-					if (valid) {
-						Ship ship = new Ship(this,start);
-						if (!shipBlackList.contains(ship)) {
+			}
+		}
+	}
 
-							if (ship.isConfirmed()) shipList[ship.size()-1][1].add(ship);
-							else shipList[ship.size()-1][0].add(ship);
-						}
+	/**
+	 * Makes the sub locations in a row again
+	 * @param row - The row index, between 0 and SIZE-1
+	 */
+	private void generateSubs(int row) {
+		uncoverLane(null, row);
+		ArrayList<Ship> list = located[SUBS][row];
+		list.clear();
+		for (int col = 0; col < SIZE; col++) {
+			Tile start = TILES[row][col];
+			if (start.getValue() == Value.BLANK || start.getValue() == Value.SHIP_UNID || start.getValue() == Value.SHIP_SUB) {
+				boolean valid = true;
+				for (Tile neighbor : start.getAdjacentNeighbors()) {
+					if (Tile.isShip(neighbor)) {
+						valid = false;
+						break;
+					}
+				}
+				if (valid) {
+					Ship ship = new Ship(this, start);
+					if (!shipBlackList.contains(ship)) {
+						list.add(ship);
+						cover(ship);
 					}
 				}
 			}
 		}
-		// Check if size is complete
-		for (int i = 0; i < MAX_SHIP_SIZE; i++) {
-			if (shipList[i][1].size() >= MAX_SHIP_SIZE - i) {
-				shipList[i][0].clear();
+	}
+
+	/**
+	 * Adds a location to the confirmed or unconfirmed list of its size
+	 */
+	private void addShip(Ship ship) {
+		if (ship.isConfirmed()) shipList[ship.size() - 1][1].add(ship);
+		else shipList[ship.size() - 1][0].add(ship);
+	}
+
+	/**
+	 * Indexes the unconfirmed ship locations by the tiles they cover, the first time the index is used on this board
+	 */
+	private void buildCoverage() {
+		generateShips();
+		if (covering != null) return;
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		ArrayList<Ship>[] lists = new ArrayList[SIZE * SIZE];
+		covering = lists;
+		coverCount = new int[MAX_SHIP_SIZE][SIZE * SIZE];
+		for (int i = 0; i < covering.length; i++) covering[i] = new ArrayList<>(4);
+		for (int size = 1; size <= MAX_SHIP_SIZE; size++) {
+			for (Ship ship : shipList[size - 1][0]) cover(ship);
+		}
+	}
+
+	/**
+	 * Adds a location to the coverage index, if the index is built, the location is unconfirmed and its size is not
+	 * complete
+	 */
+	private void cover(Ship ship) {
+		if (covering == null || complete[ship.size() - 1] || ship.isConfirmed()) return;
+		for (Tile tile : ship.tiles()) {
+			covering[tile.index()].add(ship);
+			coverCount[ship.size() - 1][tile.index()]++;
+		}
+	}
+
+	/**
+	 * Removes the locations made for a lane from the coverage index, before they are made again. A location running
+	 * along a lane only covers tiles in that lane, so only those tiles are searched
+	 * @param lane - The type of lane, or null for the subs in a row
+	 * @param idx - The lane index, between 0 and SIZE-1
+	 */
+	private void uncoverLane(Lane lane, int idx) {
+		if (covering == null) return;
+		for (int i = 0; i < SIZE; i++) {
+			int index = tile(lane == null ? Lane.ROW : lane, idx, i).index();
+			ArrayList<Ship> list = covering[index];
+			for (int j = list.size() - 1; j >= 0; j--) {
+				if (list.get(j).lane() != lane) continue;
+				coverCount[list.remove(j).size() - 1][index]--;
 			}
 		}
 	}
 
+	/**
+	 * Removes every location of a size from the coverage index, once all the ships of that size are confirmed
+	 * @param size - The length of the ship in tiles, between 1 and MAX_SHIP_SIZE
+	 */
+	private void uncoverSize(int size) {
+		if (covering == null) return;
+		for (int index = 0; index < SIZE * SIZE; index++) {
+			if (coverCount[size - 1][index] == 0) continue;
+			ArrayList<Ship> list = covering[index];
+			for (int j = list.size() - 1; j >= 0; j--) {
+				if (list.get(j).size() == size) list.remove(j);
+			}
+			coverCount[size - 1][index] = 0;
+		}
+	}
+
 	//========== Override Methods ==========//
 
 	public String toString() {
-		String result = "";
+		StringBuilder result = new StringBuilder();
 		for (int i = 0; i < SIZE; i++) {
 			for (int j = 0; j < SIZE; j++) {
-				result += TILES[i][j].getValue().toChar() + " ";
+				result.append(TILES[i][j].getValue().toChar()).append(' ');
 			}
-			result += "| " + ROW_SUM[i] + "\n";
+			result.append("| ").append(ROW_SUM[i]).append('\n');
 		}
-		result += "_ _ _ _ _ _ _ _ _ _\n";
 		for (int i = 0; i < SIZE; i++) {
-			result += COL_SUM[i] + " ";
+			result.append(i == 0 ? "_" : " _");
 		}
-		return result;
+		result.append('\n');
+		for (int i = 0; i < SIZE; i++) {
+			result.append(COL_SUM[i]).append(' ');
+		}
+		return result.toString();
 	}
 
 	//========== Unused ==========//
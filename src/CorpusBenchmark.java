@@ -0,0 +1,231 @@
+import Exceptions.InvalidMoveException;
+import Exceptions.PuzzleException;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The CorpusBenchmark class times Solver.solveDynamic on every puzzle in a corpus and compares the results with a
+ * baseline from an earlier run. Each puzzle is solved a number of times to warm up the JVM, then timed over a number of
+ * measured runs, keeping the median. The level, solved flag and number of runs of each strategy are recorded too.
+ *
+ * A comparison reports any puzzle whose level or solved flag changed, and any puzzle whose median time grew by more than
+ * the threshold. It exits with status 1 if there were any regressions.
+ *
+ * A baseline starts with the Solver.STRATEGY_VERSION it was measured with. Levels and strategy runs from another
+ * version mean something else, so such a baseline is not compared and a new one must be saved.
+ *
+ * Usage: java CorpusBenchmark [corpus] [--warmup N] [--runs N] [--save baseline] [--compare baseline] [--threshold %]
+ */
+public class CorpusBenchmark {
+
+	//========== State ==========//
+
+	private static final double NOISE_MILLIS = 0.2;		// Time differences below this are never reported
+	private static final String VERSION = "# strategy version ";	// Starts the first line of a baseline
+
+	/**
+	 * The measurements of one puzzle
+	 */
+	static class Entry {
+		final String name;
+		final int level;
+		final boolean solved;
+		final double millis;
+		final int[] runs;	// The number of runs of each strategy, where runs[0] is level 1
+
+		Entry(String name, int level, boolean solved, double millis, int[] runs) {
+			this.name = name;
+			this.level = level;
+			this.solved = solved;
+			this.millis = millis;
+			this.runs = runs;
+		}
+
+		String toLine() {
+			StringBuilder runList = new StringBuilder();
+			for (int i = 0; i < runs.length; i++) runList.append(i == 0 ? "" : ",").append(runs[i]);
+			return String.format(Locale.ROOT, "%s\t%d\t%b\t%.4f\t%s", name, level, solved, millis, runList);
+		}
+
+		static Entry fromLine(String line) {
+			String[] parts = line.split("\t");
+			String[] runList = parts.length > 4 ? parts[4].split(",") : new String[0];
+			int[] runs = new int[runList.length];
+			for (int i = 0; i < runs.length; i++) runs[i] = Integer.parseInt(runList[i]);
+			return new Entry(parts[0], Integer.parseInt(parts[1]), Boolean.parseBoolean(parts[2]),
+					Double.parseDouble(parts[3]), runs);
+		}
+	}
+
+	//========== Main ==========//
+
+	public static void main(String[] args) throws IOException {
+		String corpus = Reader.PUZZLE_FILE;
+		int warmup = 20;
+		int runs = 15;
+		double threshold = 20;
+		String save = null;
+		String compare = null;
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "--warmup": warmup = Integer.parseInt(args[++i]); break;
+				case "--runs": runs = Integer.parseInt(args[++i]); break;
+				case "--threshold": threshold = Double.parseDouble(args[++i]); break;
+				case "--save": save = args[++i]; break;
+				case "--compare": compare = args[++i]; break;
+				default: corpus = args[i];
+			}
+		}
+		if (runs < 1 || warmup < 0) {
+			System.err.println("--runs must be at least 1 and --warmup at least 0");
+			System.err.println("Usage: java CorpusBenchmark [corpus] [--warmup N] [--runs N] [--save baseline] "
+					+ "[--compare baseline] [--threshold %]");
+			System.exit(2);
+		}
+
+		ArrayList<String> puzzles = new ArrayList<>();
+		try (BufferedReader in = new BufferedReader(new FileReader(corpus))) {
+			String text;
+			while ((text = Reader.nextPuzzle(in)) != null) puzzles.add(text);
+		}
+
+		Map<String, Entry> results = new LinkedHashMap<>();
+		for (int i = 0; i < puzzles.size(); i++) {
+			Entry entry = measure("#" + (i + 1), puzzles.get(i), warmup, runs);
+			results.put(entry.name, entry);
+		}
+
+		System.out.println("Puzzle\tLevel\tSolved\tMedian(ms)\tStrategy runs");
+		double total = 0;
+		for (Entry entry : results.values()) {
+			System.out.println(entry.toLine());
+			total += entry.millis;
+		}
+		System.out.printf(Locale.ROOT, "Total median time: %.3f ms over %d puzzles%n", total, results.size());
+
+		if (save != null) {
+			try (PrintWriter out = new PrintWriter(new FileWriter(save))) {
+				out.println(VERSION + Solver.STRATEGY_VERSION);
+				for (Entry entry : results.values()) out.println(entry.toLine());
+			}
+			System.out.println("Saved baseline to " + save);
+		}
+		if (compare != null) {
+			int version = readVersion(compare);
+			if (version != Solver.STRATEGY_VERSION) {
+				System.out.println("The baseline was measured with strategy version " + (version < 0 ? "unknown" : version)
+						+ ", not " + Solver.STRATEGY_VERSION + ", so its levels cannot be compared. Save a new baseline");
+				System.exit(1);
+			}
+			if (compare(read(compare), results, threshold) > 0) System.exit(1);
+		}
+	}
+
+	//========== Methods ==========//
+
+	/**
+	 * Solves a puzzle repeatedly, parsing a fresh Board each time
+	 * @param name - The name to give the puzzle if it has no identifier line
+	 * @param text - The text of the puzzle
+	 * @param warmup - The number of untimed runs
+	 * @param runs - The number of timed runs
+	 * @return The measurements of the puzzle
+	 */
+	static Entry measure(String name, String text, int warmup, int runs) {
+		long[] nanos = new long[runs];
+		Board board = null;
+		int level = 0;
+		for (int i = -warmup; i < runs; i++) {
+			try {
+				board = Reader.parse(name, text);
+			} catch (InvalidMoveException e) {
+				return new Entry(name, 0, false, 0, new int[0]);
+			}
+			long start = System.nanoTime();
+			try {
+				level = Solver.solveDynamic(board);
+			} catch (PuzzleException e) {
+				level = 0;
+			}
+			if (i >= 0) nanos[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(nanos);
+		int[] counts = new int[Solver.STRATEGIES.length];
+		for (int i = 0; i < counts.length; i++) counts[i] = board.log.getRuns(i + 1);
+		return new Entry(board.NAME, level, level > 0 && Solver.isComplete(board), nanos[runs / 2] / 1e6, counts);
+	}
+
+	/**
+	 * Reports the differences between a baseline and the current results
+	 * @param baseline - The results of an earlier run
+	 * @param current - The results of this run
+	 * @param threshold - The percentage a puzzle's time may grow before it is reported as slower
+	 * @return The number of regressions
+	 */
+	static int compare(Map<String, Entry> baseline, Map<String, Entry> current, double threshold) {
+		int regressions = 0;
+		double before = 0;
+		double after = 0;
+		for (Entry now : current.values()) {
+			Entry then = baseline.get(now.name);
+			if (then == null) {
+				System.out.println("NEW      " + now.name);
+				continue;
+			}
+			before += then.millis;
+			after += now.millis;
+			if (then.level != now.level || then.solved != now.solved) {
+				System.out.printf("RATING   %s: level %d -> %d, solved %b -> %b%n", now.name, then.level, now.level,
+						then.solved, now.solved);
+				regressions++;
+			}
+			double change = (now.millis - then.millis) / then.millis * 100;
+			if (Math.abs(now.millis - then.millis) >= NOISE_MILLIS && Math.abs(change) > threshold) {
+				System.out.printf(Locale.ROOT, "%s %s: %.3f ms -> %.3f ms (%+.0f%%)%n", change > 0 ? "SLOWER  " : "FASTER  ",
+						now.name, then.millis, now.millis, change);
+				if (change > 0) regressions++;
+			}
+		}
+		for (String name : baseline.keySet()) {
+			if (!current.containsKey(name)) System.out.println("MISSING  " + name);
+		}
+		System.out.printf(Locale.ROOT, "Baseline total %.3f ms, current total %.3f ms, %d regressions%n", before, after,
+				regressions);
+		return regressions;
+	}
+
+	/**
+	 * Gets the strategy version a baseline was measured with
+	 * @return The version, or -1 if the baseline does not say
+	 */
+	private static int readVersion(String file) throws IOException {
+		try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+			String line = in.readLine();
+			if (line == null || !line.startsWith(VERSION)) return -1;
+			try {
+				return Integer.parseInt(line.substring(VERSION.length()).trim());
+			} catch (NumberFormatException e) {
+				return -1;
+			}
+		}
+	}
+
+	private static Map<String, Entry> read(String file) throws IOException {
+		Map<String, Entry> result = new LinkedHashMap<>();
+		try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (!line.trim().isEmpty() && !line.startsWith("#")) {
+					Entry entry = Entry.fromLine(line);
+					result.put(entry.name, entry);
+				}
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,550 @@
+import Enums.Lane;
+import Enums.Value;
+import Exceptions.PuzzleException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * The DifficultyStore class keeps the rating of every puzzle it has seen in a directory on disk, so a puzzle only has
+ * to be solved once. Puzzles are keyed by their canonical form: the smallest text of the puzzle over its eight
+ * rotations and reflections, so a puzzle and its mirror image share a record.
+ *
+ * The directory holds three kinds of file:
+ * records.dat - Every record, appended in the order they were added and never changed
+ * index.dat - A memory mapped hash table from the 64 bit hash of each canonical form to the offset of its record
+ * level-N.idx - The offsets of every record of level N, in the order they were added
+ *
+ * A record is appended before it is indexed, and the index header keeps the length of records.dat it covers. A crash
+ * can at worst leave the last record cut short or not yet indexed: on open, a record cut short is cut off records.dat
+ * and the records past the covered length are indexed. The index is rebuilt from records.dat whenever it is missing.
+ *
+ * Every record keeps the Solver.STRATEGY_VERSION it was rated with, and the index and level files only hold records of
+ * the current version. When the version changes the index is rebuilt, so puzzles rated with an older strategy table
+ * are rated again rather than given a level that now means something else.
+ */
+class DifficultyStore implements Closeable {
+
+	//========== State ==========//
+
+	private static final int MAGIC = 0x42535345;		// Marks a valid index file
+	private static final int HEADER = 32;				// Bytes before the first slot of the index
+	private static final int COUNT = 8;					// Header offset of the number of records in the index
+	private static final int VERSION = 12;				// Header offset of the strategy version of the index
+	private static final int END = 16;					// Header offset of the length of records.dat in the index
+	private static final int SLOT = 16;					// Bytes per slot: the key hash, then the record offset
+	private static final int INITIAL_CAPACITY = 1024;	// Slots in a new index, always a power of two
+
+	private final Path dir;								// The directory holding the store
+	private final RandomAccessFile records;				// The append-only record file
+	private FileChannel indexChannel;					// The open index file
+	private MappedByteBuffer index;						// The index file mapped into memory
+	private int capacity;								// The number of slots in the index
+	private int count;									// The number of records in the index
+	private long end;									// The length of records.dat covered by the index
+
+	/**
+	 * The rating of one puzzle
+	 */
+	static class Record {
+		final int version;		// The Solver.STRATEGY_VERSION the puzzle was rated with
+		final String canonical;	// The canonical form of the puzzle
+		final int level;		// The difficulty level from Solver.solveDynamic, or 0 if the puzzle is invalid
+		final boolean solved;	// Whether the solver completed the puzzle
+		final int[] runs;		// The number of runs of each strategy, where runs[0] is level 1
+		final long nanos;		// The time taken to solve
+		final String solution;	// The solved tiles in canonical orientation, one character per tile, row by row
+
+		Record(int version, String canonical, int level, boolean solved, int[] runs, long nanos, String solution) {
+			this.version = version;
+			this.canonical = canonical;
+			this.level = level;
+			this.solved = solved;
+			this.runs = runs;
+			this.nanos = nanos;
+			this.solution = solution;
+		}
+	}
+
+	//========== Constructor ==========//
+
+	/**
+	 * Opens a store, creating it if the directory is empty
+	 * @param dir - The directory holding the store
+	 * @throws IOException if the store cannot be read or created
+	 */
+	DifficultyStore(Path dir) throws IOException {
+		this.dir = dir;
+		Files.createDirectories(dir);
+		records = new RandomAccessFile(dir.resolve("records.dat").toFile(), "rw");
+		Path indexFile = dir.resolve("index.dat");
+		if (!Files.exists(indexFile) || !openIndex(indexFile) || end > records.length()) rebuild();
+		else if (end < records.length()) indexFrom(end);
+	}
+
+	//========== Methods ==========//
+
+	/**
+	 * Looks up a puzzle that has not been solved yet
+	 * @param board - The puzzle Board, with only its clues filled in
+	 * @return The record, or null if the puzzle has not been seen
+	 * @throws IOException if the store cannot be read
+	 */
+	synchronized Record get(Board board) throws IOException {
+		return find(canonical(board, canonicalTransform(board)));
+	}
+
+	/**
+	 * Gets the rating of a puzzle, solving and storing it if it has not been seen. If the puzzle has been seen, the
+	 * stored solution is copied onto the Board instead of solving it again
+	 * @param board - The puzzle Board, with only its clues filled in
+	 * @return The record for the puzzle
+	 * @throws IOException if the store cannot be read or written
+	 */
+	Record rate(Board board) throws IOException {
+		int transform = canonicalTransform(board);
+		String canonical = canonical(board, transform);
+		Record record;
+		synchronized (this) {
+			record = find(canonical);
+		}
+		if (record != null) {
+			restore(board, record.solution, transform);
+			return record;
+		}
+		long start = System.nanoTime();
+		int level;
+		try {
+			level = Solver.solveDynamic(board);
+		} catch (PuzzleException e) {
+			level = 0;
+		}
+		long nanos = System.nanoTime() - start;
+		int[] runs = new int[Solver.STRATEGIES.length];
+		for (int i = 0; i < runs.length; i++) runs[i] = board.log.getRuns(i + 1);
+		record = new Record(Solver.STRATEGY_VERSION, canonical, level, level > 0 && Solver.isComplete(board), runs, nanos,
+				tiles(board, transform));
+		synchronized (this) {
+			Record existing = find(canonical);
+			if (existing != null) return existing;
+			add(record);
+		}
+		return record;
+	}
+
+	/**
+	 * Gets puzzles of a specific level, in the order they were added
+	 * @param level - The difficulty level
+	 * @param n - The most puzzles to return
+	 * @return Up to n records
+	 * @throws IOException if the store cannot be read
+	 */
+	synchronized ArrayList<Record> byLevel(int level, int n) throws IOException {
+		ArrayList<Record> result = new ArrayList<>();
+		Path file = levelFile(level);
+		if (!Files.exists(file)) return result;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			long available = Files.size(file) / 8;
+			for (int i = 0; i < n && i < available; i++) {
+				result.add(read(in.readLong()));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the number of puzzles of a specific level
+	 * @param level - The difficulty level
+	 * @return The number of records
+	 * @throws IOException if the store cannot be read
+	 */
+	synchronized long countLevel(int level) throws IOException {
+		Path file = levelFile(level);
+		return Files.exists(file) ? Files.size(file) / 8 : 0;
+	}
+
+	/**
+	 * Gets the number of puzzles in the store
+	 * @return The number of records
+	 */
+	synchronized int size() {
+		return count;
+	}
+
+	public synchronized void close() throws IOException {
+		index.force();
+		indexChannel.close();
+		records.close();
+	}
+
+	//========== Canonical Form ==========//
+
+	/**
+	 * Finds which of the eight rotations and reflections gives the smallest text for a puzzle
+	 * @param board - The puzzle Board
+	 * @return The transform, between 0 and 7
+	 */
+	static int canonicalTransform(Board board) {
+		int best = 0;
+		String bestText = canonical(board, 0);
+		for (int t = 1; t < 8; t++) {
+			String text = canonical(board, t);
+			if (text.compareTo(bestText) < 0) {
+				best = t;
+				bestText = text;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Writes a puzzle as text after applying a rotation or reflection
+	 * @param board - The puzzle Board
+	 * @param transform - The transform, between 0 and 7
+	 * @return The tiles row by row, then the row sums, column sums and fleet
+	 */
+	static String canonical(Board board, int transform) {
+		int n = board.SIZE;
+		char[] tiles = tiles(board, transform).toCharArray();
+		int[] rowSum = new int[n];
+		int[] colSum = new int[n];
+		for (int i = 0; i < n; i++) {
+			int[] cell = transform(transform, n, i, i);
+			if (swapsAxes(transform)) {
+				rowSum[cell[0]] = board.getSum(Lane.COL, i);
+				colSum[cell[1]] = board.getSum(Lane.ROW, i);
+			} else {
+				rowSum[cell[0]] = board.getSum(Lane.ROW, i);
+				colSum[cell[1]] = board.getSum(Lane.COL, i);
+			}
+		}
+		StringBuilder text = new StringBuilder(new String(tiles));
+		text.append('|');
+		for (int sum : rowSum) text.append(sum).append(',');
+		text.append('|');
+		for (int sum : colSum) text.append(sum).append(',');
+		text.append('|');
+		for (int size = 1; size <= board.MAX_SHIP_SIZE; size++) text.append(board.getFleet(size)).append(',');
+		return text.toString();
+	}
+
+	/**
+	 * Gets the 64 bit FNV-1a hash of a canonical form. Zero marks an empty slot, so it is never returned
+	 * @param canonical - The canonical form of a puzzle
+	 * @return The hash
+	 */
+	static long hash(String canonical) {
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : canonical.getBytes(StandardCharsets.UTF_8)) {
+			hash ^= b & 0xff;
+			hash *= 0x100000001b3L;
+		}
+		return hash == 0 ? 1 : hash;
+	}
+
+	/**
+	 * Gets the tiles of a Board after applying a rotation or reflection
+	 * @return One character per tile, row by row
+	 */
+	private static String tiles(Board board, int transform) {
+		int n = board.SIZE;
+		char[] tiles = new char[n * n];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				int[] cell = transform(transform, n, i, j);
+				tiles[cell[0] * n + cell[1]] = transform(transform, board.TILES[i][j].getValue()).toChar();
+			}
+		}
+		return new String(tiles);
+	}
+
+	/**
+	 * Copies a stored solution back onto a Board in its own orientation
+	 */
+	private static void restore(Board board, String solution, int transform) {
+		int n = board.SIZE;
+		int inverse = inverse(transform);
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				int[] cell = transform(transform, n, i, j);
+				Value value = Value.fromChar(solution.charAt(cell[0] * n + cell[1]));
+				board.TILES[i][j].restoreValue(transform(inverse, value));
+			}
+		}
+	}
+
+	/**
+	 * Moves a tile position by one of the eight rotations and reflections of a square
+	 * @return The new row and column
+	 */
+	private static int[] transform(int transform, int n, int row, int col) {
+		switch (transform) {
+			case 1: return new int[] {col, n - 1 - row};
+			case 2: return new int[] {n - 1 - row, n - 1 - col};
+			case 3: return new int[] {n - 1 - col, row};
+			case 4: return new int[] {row, n - 1 - col};
+			case 5: return new int[] {n - 1 - row, col};
+			case 6: return new int[] {col, row};
+			case 7: return new int[] {n - 1 - col, n - 1 - row};
+			default: return new int[] {row, col};
+		}
+	}
+
+	/**
+	 * Turns a ship piece to match a rotation or reflection of the board, so that for example the west end of a ship
+	 * becomes the north end when the board is rotated a quarter turn
+	 */
+	private static Value transform(int transform, Value value) {
+		int[] dir;
+		switch (value) {
+			case SHIP_WEST: dir = new int[] {0, 1}; break;
+			case SHIP_EAST: dir = new int[] {0, -1}; break;
+			case SHIP_NORTH: dir = new int[] {1, 0}; break;
+			case SHIP_SOUTH: dir = new int[] {-1, 0}; break;
+			case SHIP_MID_H: return swapsAxes(transform) ? Value.SHIP_MID_V : value;
+			case SHIP_MID_V: return swapsAxes(transform) ? Value.SHIP_MID_H : value;
+			default: return value;
+		}
+		// Move the direction the ship continues in, using a board of size 1 so only the rotation is applied
+		int[] origin = transform(transform, 1, 0, 0);
+		int[] moved = transform(transform, 1, dir[0], dir[1]);
+		int dr = moved[0] - origin[0];
+		int dc = moved[1] - origin[1];
+		if (dc > 0) return Value.SHIP_WEST;
+		if (dc < 0) return Value.SHIP_EAST;
+		if (dr > 0) return Value.SHIP_NORTH;
+		return Value.SHIP_SOUTH;
+	}
+
+	private static boolean swapsAxes(int transform) {
+		return transform == 1 || transform == 3 || transform == 6 || transform == 7;
+	}
+
+	private static int inverse(int transform) {
+		return transform == 1 ? 3 : transform == 3 ? 1 : transform;
+	}
+
+	//========== Private Methods ==========//
+
+	private Path levelFile(int level) {
+		return dir.resolve("level-" + level + ".idx");
+	}
+
+	/**
+	 * Finds the record for a canonical form using the index
+	 * @return The record, or null if there is none
+	 */
+	private Record find(String canonical) throws IOException {
+		long key = hash(canonical);
+		for (int slot = (int) (key & (capacity - 1)); ; slot = (slot + 1) & (capacity - 1)) {
+			long stored = index.getLong(HEADER + slot * SLOT);
+			if (stored == 0) return null;
+			if (stored == key) {
+				Record record = read(index.getLong(HEADER + slot * SLOT + 8));
+				if (record.version == Solver.STRATEGY_VERSION && record.canonical.equals(canonical)) return record;
+			}
+		}
+	}
+
+	/**
+	 * Appends a record, then adds it to the index and its level file
+	 */
+	private void add(Record record) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(record.version);
+		out.writeUTF(record.canonical);
+		out.writeInt(record.level);
+		out.writeBoolean(record.solved);
+		out.writeInt(record.runs.length);
+		for (int runs : record.runs) out.writeInt(runs);
+		out.writeLong(record.nanos);
+		out.writeUTF(record.solution);
+		// The length and the record go in one write, so a crash leaves at most one record cut short
+		ByteArrayOutputStream framed = new ByteArrayOutputStream(4 + bytes.size());
+		new DataOutputStream(framed).writeInt(bytes.size());
+		bytes.writeTo(framed);
+		long offset = records.length();
+		records.seek(offset);
+		records.write(framed.toByteArray());
+		insert(hash(record.canonical), offset);
+		appendLevel(record.level, offset);
+		setEnd(offset + framed.size());
+	}
+
+	/**
+	 * Adds the offset of a record to the file for its level
+	 */
+	private void appendLevel(int level, long offset) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(levelFile(level),
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+			out.writeLong(offset);
+		}
+	}
+
+	/**
+	 * Gets the last offset in the file for a level
+	 * @return The offset, or -1 if the file is empty or missing
+	 */
+	private long lastLevelOffset(int level) throws IOException {
+		Path file = levelFile(level);
+		if (!Files.exists(file) || Files.size(file) < 8) return -1;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer last = ByteBuffer.allocate(8);
+			channel.read(last, channel.size() - 8);
+			return last.getLong(0);
+		}
+	}
+
+	/**
+	 * Reads the record at an offset in records.dat
+	 */
+	private Record read(long offset) throws IOException {
+		records.seek(offset);
+		byte[] bytes = new byte[records.readInt()];
+		records.readFully(bytes);
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+		int version = in.readInt();
+		String canonical = in.readUTF();
+		int level = in.readInt();
+		boolean solved = in.readBoolean();
+		int[] runs = new int[in.readInt()];
+		for (int i = 0; i < runs.length; i++) runs[i] = in.readInt();
+		long nanos = in.readLong();
+		return new Record(version, canonical, level, solved, runs, nanos, in.readUTF());
+	}
+
+	/**
+	 * Adds a key to the index, doubling the index once it is half full
+	 */
+	private void insert(long key, long offset) throws IOException {
+		if ((count + 1) * 2 > capacity) grow();
+		int slot = (int) (key & (capacity - 1));
+		while (index.getLong(HEADER + slot * SLOT) != 0) slot = (slot + 1) & (capacity - 1);
+		index.putLong(HEADER + slot * SLOT + 8, offset);
+		index.putLong(HEADER + slot * SLOT, key);
+		index.putInt(COUNT, ++count);
+	}
+
+	/**
+	 * Checks if the index already holds a key at an offset
+	 */
+	private boolean indexed(long key, long offset) {
+		for (int slot = (int) (key & (capacity - 1)); ; slot = (slot + 1) & (capacity - 1)) {
+			long stored = index.getLong(HEADER + slot * SLOT);
+			if (stored == 0) return false;
+			if (stored == key && index.getLong(HEADER + slot * SLOT + 8) == offset) return true;
+		}
+	}
+
+	/**
+	 * Records how much of records.dat the index covers
+	 */
+	private void setEnd(long end) {
+		this.end = end;
+		index.putLong(END, end);
+	}
+
+	/**
+	 * Maps an existing index file
+	 * @return False if the file is not a valid index
+	 */
+	private boolean openIndex(Path file) throws IOException {
+		indexChannel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		ByteBuffer header = ByteBuffer.allocate(HEADER);
+		indexChannel.read(header, 0);
+		header.flip();
+		if (indexChannel.size() < HEADER || header.getInt(0) != MAGIC || header.getInt(VERSION) != Solver.STRATEGY_VERSION) {
+			indexChannel.close();
+			return false;
+		}
+		capacity = header.getInt(4);
+		count = header.getInt(COUNT);
+		end = header.getLong(END);
+		index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + (long) capacity * SLOT);
+		return true;
+	}
+
+	/**
+	 * Creates an empty index of a given capacity in place of the current one
+	 */
+	private void createIndex(int newCapacity) throws IOException {
+		if (indexChannel != null) indexChannel.close();
+		Path temp = dir.resolve("index.tmp");
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER);
+			header.putInt(MAGIC).putInt(newCapacity).putInt(0).putInt(Solver.STRATEGY_VERSION).putLong(0).flip();
+			channel.write(header, 0);
+			channel.write(ByteBuffer.allocate(1), HEADER + (long) newCapacity * SLOT - 1);
+		}
+		Path file = dir.resolve("index.dat");
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+		openIndex(file);
+	}
+
+	/**
+	 * Rebuilds the index with twice as many slots
+	 */
+	private void grow() throws IOException {
+		long[] keys = new long[count];
+		long[] offsets = new long[count];
+		int n = 0;
+		for (int slot = 0; slot < capacity; slot++) {
+			long key = index.getLong(HEADER + slot * SLOT);
+			if (key != 0) {
+				keys[n] = key;
+				offsets[n++] = index.getLong(HEADER + slot * SLOT + 8);
+			}
+		}
+		long covered = end;
+		createIndex(capacity * 2);
+		for (int i = 0; i < n; i++) insert(keys[i], offsets[i]);
+		setEnd(covered);
+	}
+
+	/**
+	 * Rebuilds the index by reading every record in records.dat
+	 */
+	private void rebuild() throws IOException {
+		createIndex(INITIAL_CAPACITY);
+		try (DirectoryStream<Path> levels = Files.newDirectoryStream(dir, "level-*.idx")) {
+			for (Path level : levels) Files.delete(level);
+		}
+		indexFrom(0);
+	}
+
+	/**
+	 * Indexes the records in records.dat from an offset to its end, skipping records of another strategy version. A
+	 * record cut short by a crash while it was appended is cut off the file. The covered length is moved past each
+	 * record as it is indexed, so only the record at the covered length can already be in the index or its level file
+	 */
+	private void indexFrom(long offset) throws IOException {
+		long length = records.length();
+		while (offset < length) {
+			records.seek(offset);
+			int size = length - offset >= 4 ? records.readInt() : -1;
+			if (size < 4 || size > length - offset - 4) {
+				records.setLength(offset);
+				break;
+			}
+			if (records.readInt() == Solver.STRATEGY_VERSION) {
+				Record record = read(offset);
+				long key = hash(record.canonical);
+				if (!indexed(key, offset)) insert(key, offset);
+				if (lastLevelOffset(record.level) != offset) appendLevel(record.level, offset);
+			}
+			offset += 4 + size;
+			setEnd(offset);
+		}
+	}
+}
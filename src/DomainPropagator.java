@@ -0,0 +1,305 @@
+import Enums.Dir;
+import Enums.Lane;
+import Enums.Value;
+import Exceptions.InvalidBoardException;
+import Exceptions.PuzzleException;
+
+import java.util.BitSet;
+
+/**
+ * The DomainPropagator class narrows down what each tile could be, rather than only recording what it is. Each tile
+ * holds a domain, a bit mask of the eight values a finished tile can have, so partial knowledge such as "a ship but not
+ * a submarine" or "either SHIP_NORTH or SHIP_MID_V" can be kept and built on.
+ *
+ * Two kinds of constraint narrow the domains. Each pair of neighbors must fit together: a piece that continues a ship
+ * towards a neighbor needs that neighbor to continue it back, two ship pieces side by side must be the same ship, and
+ * diagonal neighbors cannot both be ships. Tiles outside the Board count as water. Each lane must have exactly its sum
+ * of ship tiles with no run longer than the largest ship, found by LanePatterns. Changed tiles are queued and their
+ * neighbors revised, and lanes with a changed tile are checked once the queue is empty, until nothing changes.
+ *
+ * The result is written back to the Board as the most specific Value each domain allows.
+ */
+class DomainPropagator {
+
+	//========== State ==========//
+
+	private static final Value[] VALUES = {Value.WATER, Value.SHIP_SUB, Value.SHIP_NORTH, Value.SHIP_SOUTH,
+			Value.SHIP_EAST, Value.SHIP_WEST, Value.SHIP_MID_H, Value.SHIP_MID_V};	// The value of each domain bit
+	private static final int WATER = 1;
+	private static final int SHIP = 0xFE;		// Every ship piece
+	private static final int MID = 0xC0;		// SHIP_MID_H and SHIP_MID_V
+	private static final int ALL = 0xFF;
+	private static final Dir[] DIRS = Dir.values();
+	private static final int[][] SUPPORT = support();	// SUPPORT[dir][domain] is the values a tile can have if its neighbor in dir has that domain
+
+	private final Board board;
+	private final int size;
+	private final int[] domain;				// The domain of each tile, by tile index
+	private final int[] queue;				// Tiles whose neighbors must be revised
+	private int queued;
+	private final boolean[] inQueue;
+	private final boolean[][] dirty;		// Lanes with a tile found to be ship or water since they were last checked, indexed by lane then idx
+
+	//========== Constructor ==========//
+
+	private DomainPropagator(Board board) {
+		this.board = board;
+		this.size = board.SIZE;
+		this.domain = new int[size * size];
+		this.queue = new int[size * size];
+		this.inQueue = new boolean[size * size];
+		this.dirty = new boolean[2][size];
+	}
+
+	//========== Static Functions ==========//
+
+	/**
+	 * Narrows every tile's domain to a fixed point and sets each tile that can be narrowed down
+	 * @param board - The puzzle Board being solved
+	 * @throws PuzzleException if a tile has no value left, or a lane cannot be finished
+	 */
+	static void propagate(Board board) throws PuzzleException {
+		DomainPropagator propagator = new DomainPropagator(board);
+		propagator.run();
+		propagator.writeBack();
+	}
+
+	/**
+	 * Checks if two neighboring tiles could both be right, treating a tile outside the Board as water
+	 * @param value - The value of a tile
+	 * @param neighbor - The value of its neighbor
+	 * @param dir - The direction of the neighbor from the tile
+	 * @return True if some value each tile allows fits the other
+	 */
+	static boolean compatible(Value value, Value neighbor, Dir dir) {
+		return (SUPPORT[dir.ordinal()][domainOf(neighbor)] & domainOf(value)) != 0;
+	}
+
+	//========== Private Methods ==========//
+
+	private void run() throws PuzzleException {
+		for (int i = 0; i < domain.length; i++) {
+			Tile tile = board.tile(i);
+			int d = domainOf(tile.getValue());
+			// Tiles outside the board are water
+			for (Dir dir : DIRS) {
+				if (tile.getNeighbor(dir) == null) d &= SUPPORT[dir.ordinal()][WATER];
+			}
+			set(i, d);
+			push(i);
+		}
+		for (boolean[] lanes : dirty) java.util.Arrays.fill(lanes, true);
+		boolean changed = true;
+		while (changed) {
+			while (queued > 0) revise(queue[--queued]);
+			changed = false;
+			for (Lane lane : Lane.values()) {
+				for (int idx = 0; idx < size; idx++) {
+					if (dirty[lane.ordinal()][idx]) changed |= checkLane(lane, idx);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Narrows the neighbors of a tile to the values its domain supports
+	 */
+	private void revise(int index) throws PuzzleException {
+		inQueue[index] = false;
+		Tile tile = board.tile(index);
+		for (Dir dir : DIRS) {
+			Tile neighbor = tile.getNeighbor(dir);
+			if (neighbor == null) continue;
+			int n = neighbor.index();
+			// The tile is in the opposite direction from the neighbor
+			int narrowed = domain[n] & SUPPORT[opposite(dir).ordinal()][domain[index]];
+			if (narrowed != domain[n]) {
+				set(n, narrowed);
+				push(n);
+			}
+		}
+	}
+
+	/**
+	 * Applies the lane sum to a lane
+	 * @return True if a tile changed
+	 */
+	private boolean checkLane(Lane lane, int idx) throws PuzzleException {
+		dirty[lane.ordinal()][idx] = false;
+		if (size > LanePatterns.MASK_SIZE) return checkLongLane(lane, idx);
+		int ship = 0;
+		int water = 0;
+		for (int i = 0; i < size; i++) {
+			int d = domain[board.tile(lane, idx, i).index()];
+			if (d == WATER) water |= 1 << i;
+			else if ((d & WATER) == 0) ship |= 1 << i;
+		}
+		long forced = LanePatterns.deduce(size, board.MAX_SHIP_SIZE, ship, water, board.getSum(lane, idx));
+		if (forced == LanePatterns.INFEASIBLE) {
+			throw new InvalidBoardException(() -> "Invalid Lane: " + lane + " " + idx + "\n" + board.toString());
+		}
+		boolean changed = false;
+		for (int i = 0; i < size; i++) {
+			int index = board.tile(lane, idx, i).index();
+			int narrowed = domain[index];
+			if ((forced >>> 32 + i & 1) != 0) narrowed &= WATER;
+			else if ((forced >>> i & 1) != 0) narrowed &= SHIP;
+			if (narrowed != domain[index]) {
+				set(index, narrowed);
+				push(index);
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Applies the lane sum to a lane too long for the int masks of LanePatterns, using its BitSet form instead
+	 * @return True if a tile changed
+	 */
+	private boolean checkLongLane(Lane lane, int idx) throws PuzzleException {
+		BitSet ship = new BitSet(size);
+		BitSet water = new BitSet(size);
+		for (int i = 0; i < size; i++) {
+			int d = domain[board.tile(lane, idx, i).index()];
+			if (d == WATER) water.set(i);
+			else if ((d & WATER) == 0) ship.set(i);
+		}
+		if (!LanePatterns.deduce(size, board.MAX_SHIP_SIZE, ship, water, board.getSum(lane, idx))) {
+			throw new InvalidBoardException(() -> "Invalid Lane: " + lane + " " + idx + "\n" + board.toString());
+		}
+		boolean changed = false;
+		for (int i = 0; i < size; i++) {
+			int index = board.tile(lane, idx, i).index();
+			int narrowed = domain[index];
+			if (water.get(i)) narrowed &= WATER;
+			else if (ship.get(i)) narrowed &= SHIP;
+			if (narrowed != domain[index]) {
+				set(index, narrowed);
+				push(index);
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	private void set(int index, int d) throws PuzzleException {
+		if (d == 0) {
+			throw new InvalidBoardException(() -> "No value fits " + board.tile(index) + "\n" + board.toString());
+		}
+		boolean known = d == WATER || (d & WATER) == 0;
+		boolean wasKnown = domain[index] == WATER || (domain[index] & WATER) == 0;
+		domain[index] = d;
+		// The lane sums only see whether a tile is a ship, not which piece
+		if (known != wasKnown) {
+			Tile tile = board.tile(index);
+			dirty[Lane.ROW.ordinal()][tile.ROW] = true;
+			dirty[Lane.COL.ordinal()][tile.COL] = true;
+		}
+	}
+
+	private void push(int index) {
+		if (inQueue[index]) return;
+		inQueue[index] = true;
+		queue[queued++] = index;
+	}
+
+	/**
+	 * Sets each tile to the most specific value its domain allows, where that is more than the tile already shows
+	 */
+	private void writeBack() throws PuzzleException {
+		for (int i = 0; i < domain.length; i++) {
+			Tile tile = board.tile(i);
+			Value value = valueOf(domain[i]);
+			if (value != Value.BLANK && value != tile.getValue()) {
+				tile.setValue(value);
+			}
+		}
+	}
+
+	/**
+	 * Gets the domain of a tile showing a value
+	 */
+	private static int domainOf(Value value) {
+		switch (value) {
+			case BLANK: return ALL;
+			case SHIP_UNID: return SHIP;
+			case SHIP_MID: return MID;
+			default:
+				for (int bit = 0; bit < VALUES.length; bit++) {
+					if (VALUES[bit] == value) return 1 << bit;
+				}
+				throw new IllegalArgumentException("Unknown value: " + value);
+		}
+	}
+
+	/**
+	 * Gets the most specific value that covers a domain
+	 */
+	private static Value valueOf(int d) {
+		if (Integer.bitCount(d) == 1) return VALUES[Integer.numberOfTrailingZeros(d)];
+		if ((d & WATER) != 0) return Value.BLANK;
+		if ((d & ~MID) == 0) return Value.SHIP_MID;
+		return Value.SHIP_UNID;
+	}
+
+	private static Dir opposite(Dir dir) {
+		switch (dir) {
+			case NORTH: return Dir.SOUTH;
+			case SOUTH: return Dir.NORTH;
+			case EAST: return Dir.WEST;
+			case WEST: return Dir.EAST;
+			case NORTHEAST: return Dir.SOUTHWEST;
+			case NORTHWEST: return Dir.SOUTHEAST;
+			case SOUTHEAST: return Dir.NORTHWEST;
+			default: return Dir.NORTHEAST;
+		}
+	}
+
+	/**
+	 * Works out, for each direction and each domain of the neighbor in that direction, which values a tile can have
+	 */
+	private static int[][] support() {
+		int[][] support = new int[DIRS.length][ALL + 1];
+		for (Dir dir : DIRS) {
+			for (int neighbor = 0; neighbor <= ALL; neighbor++) {
+				int allowed = 0;
+				for (int x = 0; x < VALUES.length; x++) {
+					for (int y = 0; y < VALUES.length; y++) {
+						if ((neighbor >> y & 1) != 0 && fits(VALUES[x], VALUES[y], dir)) allowed |= 1 << x;
+					}
+				}
+				support[dir.ordinal()][neighbor] = allowed;
+			}
+		}
+		return support;
+	}
+
+	/**
+	 * Checks if a tile with value x can have a neighbor with value y in a direction
+	 */
+	private static boolean fits(Value x, Value y, Dir dir) {
+		boolean shipX = x != Value.WATER;
+		boolean shipY = y != Value.WATER;
+		if (dir == Dir.NORTHEAST || dir == Dir.NORTHWEST || dir == Dir.SOUTHEAST || dir == Dir.SOUTHWEST) {
+			return !(shipX && shipY);
+		}
+		boolean out = continues(x, dir);
+		boolean back = continues(y, opposite(dir));
+		// A piece that continues towards its neighbor needs it to continue back, and ships cannot touch otherwise
+		return out == back && (out || !shipX || !shipY);
+	}
+
+	/**
+	 * Checks if a ship piece continues into the neighboring tile in a direction
+	 */
+	private static boolean continues(Value value, Dir dir) {
+		switch (dir) {
+			case NORTH: return value == Value.SHIP_SOUTH || value == Value.SHIP_MID_V;
+			case SOUTH: return value == Value.SHIP_NORTH || value == Value.SHIP_MID_V;
+			case EAST: return value == Value.SHIP_WEST || value == Value.SHIP_MID_H;
+			case WEST: return value == Value.SHIP_EAST || value == Value.SHIP_MID_H;
+			default: return false;
+		}
+	}
+}
@@ -30,7 +30,7 @@ public enum Value {
 		for (Value val : Value.values()) {
 			if (val.symbol == c) { return val; }
 		}
-		throw new Error("Invalid char: '" + c + "'");
+		throw new IllegalArgumentException("Invalid char: '" + c + "'");
 	}
 
 }
@@ -0,0 +1,27 @@
+package Events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded each time a Board is deep copied
+ */
+@Name("battleships.Clone")
+@Label("Board Clone")
+@Category({"Battleships", "Board"})
+@Description("A deep copy of a board, such as one made for search")
+@StackTrace(false)
+public class CloneEvent extends jdk.jfr.Event {
+
+	@Label("Puzzle")
+	public String puzzle;
+
+	@Label("Serialized Size")
+	@DataAmount
+	public int bytes;
+
+}
@@ -0,0 +1,29 @@
+package Events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded for each ship location tested by look ahead
+ */
+@Name("battleships.LookAhead")
+@Label("Look Ahead Hypothesis")
+@Category({"Battleships", "Solver"})
+@Description("A ship location was confirmed on a clone to see if it leads to a contradiction")
+@StackTrace(false)
+public class LookAheadEvent extends jdk.jfr.Event {
+
+	@Label("Puzzle")
+	public String puzzle;
+
+	@Label("Ship")
+	public String ship;
+
+	@Label("Contradiction")
+	@Description("True if the location was ruled out")
+	public boolean contradiction;
+
+}
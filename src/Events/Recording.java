@@ -0,0 +1,24 @@
+package Events;
+
+import jdk.jfr.FlightRecorder;
+
+/**
+ * Tells the solver whether to create its events at all. Loading the first jdk.jfr.Event subclass registers the event
+ * classes with JFR, which adds about a quarter of a second to a run that never records. Callers only create an event
+ * when isActive returns true, so no event class is loaded unless a recording has been started, either with
+ * -XX:StartFlightRecording or later with jcmd JFR.start
+ */
+public final class Recording {
+
+	private Recording() {
+	}
+
+	/**
+	 * Checks if JFR has been started in this JVM, without loading any event class
+	 * @return True if events may be recorded
+	 */
+	public static boolean isActive() {
+		return FlightRecorder.isInitialized();
+	}
+
+}
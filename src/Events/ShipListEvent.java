@@ -0,0 +1,29 @@
+package Events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded each time a Board regenerates its lists of possible ship locations
+ */
+@Name("battleships.ShipList")
+@Label("Candidate Regeneration")
+@Category({"Battleships", "Board"})
+@Description("The lists of possible ship locations were rebuilt after the board changed")
+@StackTrace(false)
+public class ShipListEvent extends jdk.jfr.Event {
+
+	@Label("Puzzle")
+	public String puzzle;
+
+	@Label("Candidates")
+	@Description("The number of possible locations that are not yet confirmed")
+	public int candidates;
+
+	@Label("Confirmed")
+	public int confirmed;
+
+}
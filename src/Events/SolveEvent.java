@@ -0,0 +1,33 @@
+package Events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded once for each puzzle solved, from start to finish
+ */
+@Name("battleships.Solve")
+@Label("Puzzle Solve")
+@Category({"Battleships", "Solver"})
+@Description("A whole puzzle was rated or solved")
+@StackTrace(false)
+public class SolveEvent extends jdk.jfr.Event {
+
+	@Label("Puzzle")
+	public String puzzle;
+
+	@Label("Rated")
+	@Description("True if the puzzle was rated, false if only the answer was found")
+	public boolean rated;
+
+	@Label("Level")
+	@Description("The difficulty level, or -1 if the puzzle was not rated")
+	public int level;
+
+	@Label("Solved")
+	public boolean solved;
+
+}
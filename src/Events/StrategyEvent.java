@@ -0,0 +1,32 @@
+package Events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded each time the Solver runs one strategy over a Board
+ */
+@Name("battleships.Strategy")
+@Label("Solver Strategy")
+@Category({"Battleships", "Solver"})
+@Description("One run of a solving strategy over a board")
+@StackTrace(false)
+public class StrategyEvent extends jdk.jfr.Event {
+
+	@Label("Puzzle")
+	public String puzzle;
+
+	@Label("Level")
+	public int level;
+
+	@Label("Strategy")
+	public String strategy;
+
+	@Label("Tiles Changed")
+	@Description("The number of tile and blacklist changes the strategy made")
+	public int changes;
+
+}
@@ -1,5 +1,7 @@
 package Exceptions;
 
+import java.util.function.Supplier;
+
 /**
  * Created by Matt on 5/28/2017.
  */
@@ -9,4 +11,8 @@ public class InvalidMoveException extends PuzzleException {
 		super(msg);
 	}
 
+	public InvalidMoveException(Supplier<String> detail) {
+		super(detail);
+	}
+
 }
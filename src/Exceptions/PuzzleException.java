@@ -1,12 +1,35 @@
 package Exceptions;
 
+import java.util.function.Supplier;
+
 /**
  * Created by Matt on 5/28/2017.
+ *
+ * Puzzle exceptions are thrown on every failed guess during look ahead and search, so they are built without a stack
+ * trace, and a message that is expensive to build can be passed as a Supplier that is only run if the message is read.
  */
 public class PuzzleException extends Exception {
 
+	private transient Supplier<String> detail;	// Builds the message when it is first read, or null once built
+	private String message;						// The message, once built
+
 	PuzzleException(String msg) {
-		super(msg);
+		super(null, null, false, false);
+		this.message = msg;
+	}
+
+	PuzzleException(Supplier<String> detail) {
+		super(null, null, false, false);
+		this.detail = detail;
+	}
+
+	@Override
+	public String getMessage() {
+		if (detail != null) {
+			message = detail.get();
+			detail = null;
+		}
+		return message;
 	}
 
 }
@@ -0,0 +1,463 @@
+import Enums.Lane;
+import Enums.Value;
+import Exceptions.InvalidMoveException;
+import Exceptions.PuzzleException;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * The Fuzzer class checks the alternative engines against the reference solver, Solver.solveDynamic. It generates
+ * random puzzles, solves each one with the reference and with every engine being tested, and reports any puzzle where
+ * they disagree about the final grid, the level or whether the puzzle has no solution.
+ *
+ * Each engine only promises part of what the reference does, so each is held to what it promises:
+ *   fast - solveFast must finish every puzzle the reference finishes with the same grid, must not finish a puzzle the
+ *          reference proved has no solution, and must agree with every tile the reference found when it finishes a
+ *          puzzle the reference could not
+ *   sliced - SlicedBoards must give the reference's level and grid for every puzzle the reference finishes at level 1
+ *          or 2, and must report a contradiction only for puzzles the reference proved have no solution
+ *   sat - SatBackend must find a solution exactly when the reference did not prove there is none, equal to the
+ *          reference's grid when it finished the puzzle and agreeing with every tile it found when it did not
+ *
+ * A failing puzzle is shrunk by removing known tiles for as long as the engines still disagree, and the smallest
+ * version is written to the output file in the format of FreePuzzles.txt, so it can be loaded with Reader.readPuzzle.
+ * The program exits with status 1 if any puzzle failed.
+ *
+ * The reference is normally the solveDynamic being tested, so a change to it cannot show up as a disagreement. With
+ * --save-reference, the puzzles and what solveDynamic made of them are written to a file. With --reference, the
+ * puzzles are read back from such a file and the engines are held to the stored outcomes instead, along with one more
+ * engine:
+ *   dynamic - solveDynamic must give the stored level, grid and error for every puzzle
+ * Puzzles that fail against a stored reference are written out without shrinking, since a smaller puzzle has no stored
+ * outcome. A reference saved with another Solver.STRATEGY_VERSION is not used.
+ *
+ * Usage: java Fuzzer [puzzles] [size] [--seed N] [--engine fast|sliced|sat|dynamic|all] [--out file]
+ *                    [--save-reference file] [--reference file]
+ */
+public class Fuzzer {
+
+	//========== State ==========//
+
+	static final String[] ENGINES = {"fast", "sliced", "sat"};
+
+	private static final String VERSION = "# strategy version ";	// Starts the first line of a reference file
+	private static final String OUTCOME = "#= ";	// Starts the outcome line before each puzzle in a reference file
+
+	/**
+	 * What the reference solver made of a puzzle
+	 */
+	static class Outcome {
+		final Value[] grid;		// The value of every tile when the solver stopped, or null if it threw
+		final int level;		// The level returned by solveDynamic, or 0 if it threw
+		final boolean complete;	// Whether the solver finished the puzzle
+		final String error;		// The class of exception thrown, or null
+
+		Outcome(Value[] grid, int level, boolean complete, String error) {
+			this.grid = grid;
+			this.level = level;
+			this.complete = complete;
+			this.error = error;
+		}
+
+		public String toString() {
+			if (error != null) return error;
+			return (complete ? "solved" : "unsolved") + " at level " + level;
+		}
+
+		String toLine() {
+			StringBuilder tiles = new StringBuilder();
+			if (grid == null) tiles.append('-');
+			else for (Value value : grid) tiles.append(value.toChar());
+			return OUTCOME + level + "\t" + complete + "\t" + (error == null ? "-" : error) + "\t" + tiles;
+		}
+
+		static Outcome fromLine(String line) {
+			String[] parts = line.substring(OUTCOME.length()).split("\t");
+			Value[] grid = null;
+			if (!parts[3].equals("-")) {
+				grid = new Value[parts[3].length()];
+				for (int i = 0; i < grid.length; i++) grid[i] = Value.fromChar(parts[3].charAt(i));
+			}
+			return new Outcome(grid, Integer.parseInt(parts[0]), Boolean.parseBoolean(parts[1]),
+					parts[2].equals("-") ? null : parts[2]);
+		}
+	}
+
+	//========== Main ==========//
+
+	public static void main(String[] args) throws IOException {
+		int puzzles = 1000;
+		int size = 10;
+		long seed = 1;
+		String out = "fuzz-failures.txt";
+		String save = null;
+		String stored = null;
+		String engine = "all";
+		int positional = 0;
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "--seed": seed = Long.parseLong(args[++i]); break;
+				case "--out": out = args[++i]; break;
+				case "--engine": engine = args[++i]; break;
+				case "--save-reference": save = args[++i]; break;
+				case "--reference": stored = args[++i]; break;
+				default:
+					if (positional++ == 0) puzzles = Integer.parseInt(args[i]);
+					else size = Integer.parseInt(args[i]);
+			}
+		}
+		if (save != null && stored != null) {
+			throw new IllegalArgumentException("--save-reference and --reference cannot be used together");
+		}
+		String[] engines;
+		if (engine.equals("all")) {
+			engines = stored == null ? ENGINES : new String[] {"fast", "sliced", "sat", "dynamic"};
+		} else if (Arrays.asList(ENGINES).contains(engine) || engine.equals("dynamic") && stored != null) {
+			engines = new String[] {engine};
+		} else {
+			throw new IllegalArgumentException("Unknown engine: " + engine + (engine.equals("dynamic") ? ", it needs --reference" : ""));
+		}
+
+		ArrayList<Board> boards = new ArrayList<>();
+		ArrayList<Outcome> outcomes = new ArrayList<>();
+		if (stored != null) {
+			readReference(stored, puzzles, boards, outcomes);
+		} else {
+			int[] fleet = Benchmark.fleetFor(size);
+			Generator generator = new Generator(seed);
+			Random random = new Random(seed);
+			for (int n = 1; n <= puzzles; n++) {
+				boards.add(generator.puzzle("Fuzz " + n, size, fleet, random.nextInt(size * size / 3 + 1)));
+			}
+		}
+
+		int[] failures = new int[engines.length];
+		ArrayList<String> reproducers = new ArrayList<>();
+		long start = System.nanoTime();
+		for (int n = 0; n < boards.size(); n++) {
+			Board board = boards.get(n);
+			Outcome expected = stored != null ? outcomes.get(n) : reference(board);
+			if (save != null) outcomes.add(expected);
+			for (int e = 0; e < engines.length; e++) {
+				String difference = compare(engines[e], board, expected);
+				if (difference == null) continue;
+				failures[e]++;
+				System.out.println(board.NAME + " [" + engines[e] + "]: " + difference);
+				Board smallest = board;
+				if (stored == null) {
+					smallest = shrink(engines[e], board);
+					System.out.println("  shrunk to " + known(smallest) + " known tiles: " + compare(engines[e], smallest, reference(smallest)));
+				}
+				reproducers.add(toPuzzleText(reproducers.size() + 1, smallest));
+			}
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.printf(Locale.ROOT, "%d puzzles of size %d in %.2f s (%.0f puzzles/s)%n", boards.size(),
+				boards.isEmpty() ? size : boards.get(0).SIZE, seconds, boards.size() / seconds);
+		if (save != null) {
+			try (PrintWriter writer = new PrintWriter(new FileWriter(save))) {
+				writer.println(VERSION + Solver.STRATEGY_VERSION);
+				for (int n = 0; n < boards.size(); n++) {
+					writer.println(outcomes.get(n).toLine());
+					writer.println(toPuzzleText(n + 1, boards.get(n)));
+				}
+			}
+			System.out.println("Saved the reference for " + boards.size() + " puzzles to " + save);
+		}
+		int total = 0;
+		for (int e = 0; e < engines.length; e++) {
+			System.out.printf("%-8s %d disagreements%n", engines[e], failures[e]);
+			total += failures[e];
+		}
+		if (total > 0) {
+			try (PrintWriter writer = new PrintWriter(new FileWriter(out))) {
+				for (String text : reproducers) writer.println(text);
+			}
+			System.out.println("Wrote " + reproducers.size() + " reproducers to " + out);
+			System.exit(1);
+		}
+	}
+
+	//========== Methods ==========//
+
+	/**
+	 * Solves a copy of a puzzle with Solver.solveDynamic
+	 * @param board - The puzzle, which is left unchanged
+	 * @return What the reference solver made of it
+	 */
+	static Outcome reference(Board board) {
+		Board clone = board.cloneBoard();
+		try {
+			int level = Solver.solveDynamic(clone);
+			return new Outcome(grid(clone), level, Solver.isComplete(clone), null);
+		} catch (PuzzleException | RuntimeException e) {
+			return new Outcome(null, 0, false, e.getClass().getSimpleName());
+		}
+	}
+
+	/**
+	 * Solves a copy of a puzzle with an engine and compares the result with the reference
+	 * @param engine - The name of the engine, one of ENGINES
+	 * @param board - The puzzle, which is left unchanged
+	 * @param expected - What the reference solver made of the puzzle
+	 * @return A description of the difference, or null if the engine agrees with the reference
+	 */
+	static String compare(String engine, Board board, Outcome expected) {
+		switch (engine) {
+			case "fast": return compareFast(board, expected);
+			case "sliced": return compareSliced(board, expected);
+			case "sat": return compareSat(board, expected);
+			case "dynamic": return compareDynamic(board, expected);
+			default: throw new IllegalArgumentException("Unknown engine: " + engine);
+		}
+	}
+
+	/**
+	 * Removes known tiles from a failing puzzle for as long as the engine still disagrees with the reference. Tiles
+	 * are removed in blocks, starting with half of them and halving the block whenever no block can be removed
+	 * @param engine - The name of the engine that disagreed
+	 * @param board - The failing puzzle
+	 * @return The smallest failing puzzle found, which may be the original
+	 */
+	static Board shrink(String engine, Board board) {
+		Value[] clues = grid(board);
+		Board smallest = board;
+		for (int block = Math.max(known(board) / 2, 1); block >= 1; block /= 2) {
+			boolean removed = true;
+			while (removed) {
+				removed = false;
+				int[] tiles = knownTiles(clues);
+				for (int from = 0; from < tiles.length; from += block) {
+					Value[] trial = clues.clone();
+					for (int i = from; i < Math.min(from + block, tiles.length); i++) trial[tiles[i]] = Value.BLANK;
+					Board candidate = rebuild(board, trial);
+					if (candidate != null && compare(engine, candidate, reference(candidate)) != null) {
+						clues = trial;
+						smallest = candidate;
+						removed = true;
+						break;
+					}
+				}
+			}
+		}
+		return smallest;
+	}
+
+	/**
+	 * Formats a puzzle in the format of FreePuzzles.txt, with the fleet line only if the fleet is not the classic one
+	 * @param id - The identifier to give the puzzle
+	 * @param board - The puzzle
+	 * @return The lines of the puzzle, ending with a blank line
+	 */
+	static String toPuzzleText(int id, Board board) {
+		StringBuilder result = new StringBuilder();
+		result.append(id).append(")\n");
+		for (int i = 0; i < board.SIZE; i++) {
+			for (int j = 0; j < board.SIZE; j++) {
+				result.append(j == 0 ? "" : " ").append(board.TILES[i][j].getValue().toChar());
+			}
+			result.append('\n');
+		}
+		result.append(list(board.SIZE, idx -> board.getSum(Lane.ROW, idx))).append('\n');
+		result.append(list(board.SIZE, idx -> board.getSum(Lane.COL, idx))).append('\n');
+		int[] fleet = fleet(board);
+		if (!Arrays.equals(fleet, Board.classicFleet(Reader.CLASSIC_MAX_SHIP_SIZE))) {
+			result.append(list(fleet.length, idx -> fleet[idx])).append('\n');
+		}
+		return result.toString();
+	}
+
+	//========== Private Methods ==========//
+
+	/**
+	 * Reads the puzzles and outcomes written by --save-reference
+	 * @param file - The reference file
+	 * @param limit - The most puzzles to read
+	 * @param boards - Collects the puzzles, named as when they were generated
+	 * @param outcomes - Collects what solveDynamic made of each puzzle
+	 * @throws IOException if the file cannot be read, or was saved with another strategy version
+	 */
+	private static void readReference(String file, int limit, ArrayList<Board> boards, ArrayList<Outcome> outcomes)
+			throws IOException {
+		try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+			String line = in.readLine();
+			if (line == null || !line.equals(VERSION + Solver.STRATEGY_VERSION)) {
+				throw new IOException(file + " was not saved with strategy version " + Solver.STRATEGY_VERSION
+						+ ", save a new reference");
+			}
+			while (boards.size() < limit && (line = in.readLine()) != null) {
+				if (!line.startsWith(OUTCOME)) continue;
+				String text = Reader.nextPuzzle(in);
+				if (text == null) throw new IOException(file + ": missing puzzle after " + line);
+				Board board;
+				try {
+					board = Reader.parse("Fuzz", text);
+				} catch (InvalidMoveException e) {
+					throw new IOException(file + ": " + e.getMessage());
+				}
+				board.NAME = "Fuzz " + (boards.size() + 1);
+				boards.add(board);
+				outcomes.add(Outcome.fromLine(line));
+			}
+		}
+	}
+
+	private static String compareDynamic(Board board, Outcome expected) {
+		Outcome actual = reference(board);
+		if (!actual.toString().equals(expected.toString())) return "dynamic " + actual + ", reference " + expected;
+		if (actual.grid == null) return null;
+		int tile = firstDifference(expected.grid, actual.grid, false);
+		return tile < 0 ? null : "dynamic " + describe(board, tile, actual.grid) + ", reference " + describe(board, tile, expected.grid);
+	}
+
+	private static String compareFast(Board board, Outcome expected) {
+		Board clone = board.cloneBoard();
+		boolean complete;
+		try {
+			complete = Solver.solveFast(clone);
+		} catch (PuzzleException e) {
+			if (expected.error != null || !expected.complete) return null;
+			return "fast threw " + e.getClass().getSimpleName() + ", reference " + expected;
+		} catch (RuntimeException e) {
+			return "fast threw " + e + ", reference " + expected;
+		}
+		if (expected.error != null) {
+			return complete ? "fast solved it, reference threw " + expected.error : null;
+		}
+		Value[] grid = grid(clone);
+		if (expected.complete) {
+			if (!complete) return "fast did not solve it, reference " + expected;
+			int tile = firstDifference(expected.grid, grid, false);
+			return tile < 0 ? null : "fast " + describe(board, tile, grid) + ", reference " + describe(board, tile, expected.grid);
+		}
+		if (!complete) return null;
+		int tile = firstDifference(expected.grid, grid, true);
+		return tile < 0 ? null : "fast " + describe(board, tile, grid) + ", unsolved reference " + describe(board, tile, expected.grid);
+	}
+
+	private static String compareSliced(Board board, Outcome expected) {
+		SlicedBoards sliced;
+		int level;
+		try {
+			sliced = new SlicedBoards(board);
+			level = sliced.solveEasiest()[0];
+		} catch (RuntimeException e) {
+			return "sliced threw " + e + ", reference " + expected;
+		}
+		if (level < 0) {
+			return expected.error != null ? null : "sliced found a contradiction, reference " + expected;
+		}
+		boolean easy = expected.error == null && expected.complete && expected.level <= 2;
+		if (level == 0) {
+			return easy ? "sliced needs a higher level, reference " + expected : null;
+		}
+		if (!easy || expected.level != level) return "sliced solved it at level " + level + ", reference " + expected;
+		Board clone = board.cloneBoard();
+		sliced.writeBack(0, clone);
+		Value[] grid = grid(clone);
+		int tile = firstDifference(expected.grid, grid, false);
+		return tile < 0 ? null : "sliced " + describe(board, tile, grid) + ", reference " + describe(board, tile, expected.grid);
+	}
+
+	private static String compareSat(Board board, Outcome expected) {
+		SatBackend backend;
+		boolean found;
+		try {
+			backend = new SatBackend(board);
+			found = backend.solve();
+		} catch (RuntimeException e) {
+			return "sat threw " + e + ", reference " + expected;
+		}
+		if (expected.error != null) return found ? "sat found a solution, reference threw " + expected.error : null;
+		if (!found) return "sat found no solution, reference " + expected;
+		Board clone = board.cloneBoard();
+		backend.writeBack(clone);
+		Value[] grid = grid(clone);
+		int tile = firstDifference(expected.grid, grid, !expected.complete);
+		return tile < 0 ? null : "sat " + describe(board, tile, grid) + ", reference " + describe(board, tile, expected.grid);
+	}
+
+	/**
+	 * Finds the first tile where two grids differ
+	 * @param partial - If true, the first grid is allowed to be unfinished, so a blank matches anything and an
+	 *                unidentified ship matches any ship
+	 * @return The tile index, or -1 if the grids agree
+	 */
+	private static int firstDifference(Value[] expected, Value[] actual, boolean partial) {
+		for (int i = 0; i < expected.length; i++) {
+			if (expected[i] == actual[i]) continue;
+			if (partial && expected[i] == Value.BLANK) continue;
+			if (partial && expected[i] == Value.SHIP_UNID && actual[i] != Value.WATER && actual[i] != Value.BLANK) continue;
+			return i;
+		}
+		return -1;
+	}
+
+	private static String describe(Board board, int tile, Value[] grid) {
+		return "has " + grid[tile].toChar() + " at (" + tile / board.SIZE + "," + tile % board.SIZE + ")";
+	}
+
+	/**
+	 * Creates a fresh copy of a puzzle with a different set of known tiles
+	 * @return The new Board, or null if the tiles conflict with each other
+	 */
+	private static Board rebuild(Board board, Value[] clues) {
+		int[] rowSum = new int[board.SIZE];
+		int[] colSum = new int[board.SIZE];
+		for (int i = 0; i < board.SIZE; i++) {
+			rowSum[i] = board.getSum(Lane.ROW, i);
+			colSum[i] = board.getSum(Lane.COL, i);
+		}
+		Board result = new Board(board.NAME, board.SIZE, fleet(board), rowSum, colSum);
+		try {
+			for (int i = 0; i < clues.length; i++) {
+				if (clues[i] != Value.BLANK) result.tile(i).setValue(clues[i]);
+			}
+		} catch (InvalidMoveException e) {
+			return null;
+		}
+		result.log.clear();
+		return result;
+	}
+
+	private static Value[] grid(Board board) {
+		Value[] grid = new Value[board.SIZE * board.SIZE];
+		for (int i = 0; i < grid.length; i++) grid[i] = board.tile(i).getValue();
+		return grid;
+	}
+
+	private static int[] fleet(Board board) {
+		int[] fleet = new int[board.MAX_SHIP_SIZE];
+		for (int size = 1; size <= fleet.length; size++) fleet[size - 1] = board.getFleet(size);
+		return fleet;
+	}
+
+	private static int known(Board board) {
+		return knownTiles(grid(board)).length;
+	}
+
+	private static int[] knownTiles(Value[] grid) {
+		int count = 0;
+		int[] tiles = new int[grid.length];
+		for (int i = 0; i < grid.length; i++) {
+			if (grid[i] != Value.BLANK) tiles[count++] = i;
+		}
+		return Arrays.copyOf(tiles, count);
+	}
+
+	private static String list(int length, IntUnaryOperator value) {
+		StringBuilder result = new StringBuilder("{");
+		for (int i = 0; i < length; i++) result.append(i == 0 ? "" : ",").append(value.applyAsInt(i));
+		return result.append('}').toString();
+	}
+}
@@ -0,0 +1,137 @@
+import Enums.Value;
+import Exceptions.InvalidBoardException;
+import Exceptions.InvalidMoveException;
+import Exceptions.PuzzleException;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * The Generator class creates random puzzles. A random fleet layout is chosen first, the row and column sums are taken
+ * from it, and then a number of its tiles are revealed as clues.
+ */
+class Generator {
+
+	//========== State ==========//
+
+	private final Random random;					// The source of randomness, seeded for reproducible puzzles
+	private LayoutSampler sampler;					// Draws layouts for the size and fleet last asked for
+
+	//========== Constructor ==========//
+
+	/**
+	 * Creates a generator with a fixed seed
+	 * @param seed - The seed for the random number generator
+	 */
+	Generator(long seed) {
+		this.random = new Random(seed);
+	}
+
+	//========== Methods ==========//
+
+	/**
+	 * Randomly places every ship in a fleet on an empty grid so that no two ships touch, including diagonally
+	 * @param size - The number of rows and columns
+	 * @param fleet - The number of ships of each size, where fleet[0] is the number of submarines
+	 * @return A fully solved grid of values
+	 */
+	Value[][] layout(int size, int[] fleet) {
+		if (sampler == null || !sampler.matches(size, fleet)) sampler = new LayoutSampler(size, fleet, random.nextLong());
+		sampler.next();
+		return sampler.toGrid();
+	}
+
+	/**
+	 * Creates a puzzle from a solved grid by calculating the lane sums and revealing random tiles
+	 * @param name - The name to give the Board
+	 * @param solution - A fully solved grid of values
+	 * @param fleet - The number of ships of each size, where fleet[0] is the number of submarines
+	 * @param clues - The number of tiles to reveal
+	 * @return An instance of Board ready to be solved
+	 * @throws IllegalArgumentException if the grid is not a valid layout of the fleet
+	 */
+	Board puzzle(String name, Value[][] solution, int[] fleet, int clues) {
+		int size = solution.length;
+		int[] rowSum = new int[size];
+		int[] colSum = new int[size];
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				if (solution[i][j] != Value.WATER) {
+					rowSum[i]++;
+					colSum[j]++;
+				}
+			}
+		}
+		try {
+			Validator.checkSolution(name, solution, fleet, rowSum, colSum);
+		} catch (InvalidBoardException e) {
+			throw new IllegalArgumentException(e.getMessage());
+		}
+		Board board = new Board(name, size, fleet, rowSum, colSum);
+		try {
+			for (int k = 0; k < clues; k++) {
+				int i = random.nextInt(size);
+				int j = random.nextInt(size);
+				board.TILES[i][j].setValue(solution[i][j]);
+			}
+		} catch (InvalidMoveException e) {
+			throw new IllegalStateException("Generated layout is not valid", e);
+		}
+		board.log.clear();
+		return board;
+	}
+
+	/**
+	 * Generates a random puzzle
+	 * @param name - The name to give the Board
+	 * @param size - The number of rows and columns
+	 * @param fleet - The number of ships of each size, where fleet[0] is the number of submarines
+	 * @param clues - The number of tiles to reveal
+	 * @return An instance of Board ready to be solved
+	 */
+	Board puzzle(String name, int size, int[] fleet, int clues) {
+		return puzzle(name, layout(size, fleet), fleet, clues);
+	}
+
+	/**
+	 * Generates puzzles until enough of them need at least a minimum level to solve. Candidates are screened 64 at a
+	 * time by SlicedBoards, which rates the puzzles that only need levels 1 and 2 without the scalar solver. The rest
+	 * are rated by Solver.solveDynamic, starting from the tiles the easiest strategies already found
+	 * @param name - The name to give each Board, followed by its number
+	 * @param size - The number of rows and columns
+	 * @param fleet - The number of ships of each size, where fleet[0] is the number of submarines
+	 * @param clues - The number of tiles to reveal in each candidate
+	 * @param minLevel - The lowest difficulty level to accept, as rated with the current Solver.STRATEGY_VERSION
+	 * @param count - The number of puzzles to return
+	 * @return The accepted puzzles, unsolved
+	 */
+	ArrayList<Board> generate(String name, int size, int[] fleet, int clues, int minLevel, int count) {
+		ArrayList<Board> result = new ArrayList<>();
+		Board[] candidates = new Board[SlicedBoards.CAPACITY];
+		while (result.size() < count) {
+			for (int b = 0; b < candidates.length; b++) {
+				candidates[b] = puzzle(name, size, fleet, clues);
+			}
+			SlicedBoards sliced = new SlicedBoards(candidates);
+			int[] levels = sliced.solveEasiest();
+			for (int b = 0; b < candidates.length && result.size() < count; b++) {
+				int level = levels[b];
+				if (level == 0) {
+					Board board = candidates[b].cloneBoard();
+					sliced.writeBack(b, board);
+					try {
+						level = Solver.solveDynamic(board);
+						if (!Solver.isComplete(board)) level = 0;
+					} catch (PuzzleException e) {
+						level = 0;
+					}
+				}
+				if (level >= minLevel) {
+					candidates[b].NAME = name + " " + (result.size() + 1);
+					result.add(candidates[b]);
+				}
+			}
+		}
+		return result;
+	}
+}
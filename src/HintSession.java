@@ -0,0 +1,113 @@
+import Enums.Value;
+import Exceptions.InvalidMoveException;
+import Exceptions.PuzzleException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The HintSession class gives the next logical step for a puzzle being played, one step at a time. The Board is kept
+ * between calls, so each hint only runs the cheapest strategy that makes progress rather than solving the whole Board.
+ * A strategy that found nothing is skipped until the Board changes again, either from a hint or from a move entered by
+ * the player.
+ */
+class HintSession {
+
+	//========== State ==========//
+
+	private final Board board;		// The puzzle as currently known to the player
+	private final int[] idleAt;		// The board version at which each level last found nothing, or -1
+	private final Value[] before;	// The tile values before the last strategy was run
+
+	/**
+	 * A single step towards solving the puzzle
+	 */
+	static class Hint {
+		final int level;				// The level of the strategy that made the step
+		final String strategy;			// The name of the strategy
+		final ArrayList<Tile> tiles;	// The tiles whose values changed, which is empty if only a ship was ruled out
+		final String description;		// The actions taken, as recorded by the Logger
+
+		private Hint(int level, ArrayList<Tile> tiles, String description) {
+			this.level = level;
+			this.strategy = Solver.STRATEGIES[level - 1];
+			this.tiles = tiles;
+			this.description = description;
+		}
+
+		public String toString() {
+			StringBuilder result = new StringBuilder(strategy + " (level " + level + "):");
+			for (Tile tile : tiles) result.append(' ').append(tile).append('=').append(tile.getValue().toChar());
+			return result.toString();
+		}
+	}
+
+	//========== Constructor ==========//
+
+	/**
+	 * Starts a session for a puzzle. The session takes ownership of the Board
+	 * @param board - The puzzle Board, with any moves already made
+	 */
+	HintSession(Board board) {
+		this.board = board;
+		this.idleAt = new int[Solver.STRATEGIES.length];
+		this.before = new Value[board.SIZE * board.SIZE];
+		Arrays.fill(idleAt, -1);
+	}
+
+	//========== Methods ==========//
+
+	/**
+	 * Finds and applies the next step, using the lowest level strategy that makes progress
+	 * @return The step taken, or null if the puzzle is complete or no strategy can make progress
+	 * @throws PuzzleException if the moves made so far leave the puzzle with no solution
+	 */
+	Hint next() throws PuzzleException {
+		if (Solver.isComplete(board)) return null;
+		for (int level = 1; level <= Solver.STRATEGIES.length; level++) {
+			int version = board.getVersion();
+			if (idleAt[level - 1] == version) continue;
+			for (int i = 0; i < before.length; i++) before[i] = board.tile(i).getValue();
+			int logStart = board.log.getLog().length();
+			board.log.reset();
+			Solver.execute(board, level);
+			if (!board.log.getChanged()) {
+				idleAt[level - 1] = version;
+				continue;
+			}
+			ArrayList<Tile> tiles = new ArrayList<>();
+			for (int i = 0; i < before.length; i++) {
+				if (board.tile(i).getValue() != before[i]) tiles.add(board.tile(i));
+			}
+			return new Hint(level, tiles, board.log.getLog().substring(logStart));
+		}
+		return null;
+	}
+
+	/**
+	 * Enters a move made by the player
+	 * @param row - The row of the tile
+	 * @param col - The column of the tile
+	 * @param value - The new value of the tile
+	 * @throws InvalidMoveException if the move conflicts with the tiles already known
+	 */
+	void play(int row, int col, Value value) throws InvalidMoveException {
+		board.TILES[row][col].setValue(value);
+	}
+
+	/**
+	 * Gets how likely each tile is to be part of a ship, over every solution consistent with the tiles known so far
+	 * @return An array of fractions between 0 and 1, indexed by row then column, filled with 0 if there is no solution
+	 */
+	double[][] heatmap() {
+		return new SolutionCounter(board).probabilities();
+	}
+
+	/**
+	 * Gets the puzzle as currently known, including the steps from any hints
+	 * @return The Board owned by this session
+	 */
+	Board getBoard() {
+		return board;
+	}
+}
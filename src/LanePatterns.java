@@ -0,0 +1,330 @@
+import Enums.Lane;
+import Enums.Value;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The LanePatterns class finds every tile of a lane whose value is forced by the lane alone. A lane is a row of blank,
+ * water and ship tiles, and the ways to finish it are the ways to fill its blanks so that it has exactly its sum of
+ * ship tiles and no run of ship tiles longer than the largest ship. A blank that is a ship in every way to finish the
+ * lane must be a ship, a blank that is water in every way must be water, and a lane that cannot be finished at all
+ * means the Board has no solution.
+ *
+ * For lanes of up to TABLE_SIZE tiles the answer for every pattern and sum is built into a table the first time a
+ * Board of that size is seen, so each lane is a single lookup. Longer lanes are worked out directly each time. Lanes of
+ * up to MASK_SIZE tiles are given and returned as int bit masks, and longer lanes as BitSets. Ships may be at most
+ * MAX_RUN tiles long.
+ *
+ * Run as a program, it checks deduce against every way to finish random lanes of up to 40 tiles, so lanes looked up in
+ * a table, worked out with int masks and worked out with BitSets are all covered.
+ *
+ * Usage: java LanePatterns [lanes] [seed]
+ */
+class LanePatterns {
+
+	//========== State ==========//
+
+	static final int TABLE_SIZE = 10;		// The longest lane that is looked up rather than worked out directly
+	static final int MASK_SIZE = 32;		// The longest lane that fits in the int masks of deduce
+	static final int MAX_RUN = 62;			// The longest ship whose run lengths fit in a long mask
+	static final long INFEASIBLE = -1L;		// The result for a lane that cannot be finished
+
+	private static final ConcurrentHashMap<Integer, int[]> TABLES = new ConcurrentHashMap<>();
+
+	public static void main(String[] args) {
+		int lanes = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		Random random = new Random(args.length > 1 ? Long.parseLong(args[1]) : 1);
+		int failures = 0;
+		for (int n = 0; n < lanes; n++) {
+			int size = 1 + random.nextInt(40);
+			int maxRun = 1 + random.nextInt(Math.min(size, 6));
+			// A random finished lane, then a random sum that is usually its own
+			BitSet finish = new BitSet(size);
+			for (int i = 0, run = 0; i < size; i++) {
+				run = run < maxRun && random.nextInt(3) == 0 ? run + 1 : 0;
+				if (run > 0) finish.set(i);
+			}
+			int sum = random.nextInt(8) == 0 ? random.nextInt(size + 1) : finish.cardinality();
+			// Leave at most 14 tiles blank, so every way to finish can be tried
+			BitSet ship = new BitSet(size);
+			BitSet water = new BitSet(size);
+			int blanks = Math.min(size, random.nextInt(15));
+			for (int i = 0; i < size; i++) {
+				if (random.nextInt(size) < blanks) continue;
+				if (finish.get(i)) ship.set(i);
+				else water.set(i);
+			}
+			String expected = bruteForce(size, maxRun, ship, water, sum);
+			BitSet forcedShip = (BitSet) ship.clone();
+			BitSet forcedWater = (BitSet) water.clone();
+			String actual = deduce(size, maxRun, forcedShip, forcedWater, sum) ? forcedShip + " " + forcedWater : "infeasible";
+			if (size <= MASK_SIZE) {
+				long forced = deduce(size, maxRun, ship.isEmpty() ? 0 : (int) ship.toLongArray()[0],
+						water.isEmpty() ? 0 : (int) water.toLongArray()[0], sum);
+				String masks = forced == INFEASIBLE ? "infeasible" : BitSet.valueOf(new long[] {forced & 0xFFFFFFFFL}) + " "
+						+ BitSet.valueOf(new long[] {forced >>> 32});
+				if (!masks.equals(actual)) actual += " / masks " + masks;
+			}
+			if (!expected.equals(actual)) {
+				failures++;
+				System.out.println("Size " + size + ", longest ship " + maxRun + ", sum " + sum + ", ships " + ship
+						+ ", water " + water + ": expected " + expected + " but got " + actual);
+			}
+		}
+		System.out.println(lanes + " lanes checked, " + failures + " wrong");
+		if (failures > 0) System.exit(1);
+	}
+
+	//========== Methods ==========//
+
+	/**
+	 * Finds the forced tiles of a lane of up to MASK_SIZE tiles
+	 * @param board - The puzzle Board being solved
+	 * @param lane - The type or lane, row or column
+	 * @param idx - The lane index, between 0 and SIZE-1
+	 * @return The forced ship tiles as a bit mask in the low 32 bits, where bit i is the tile at position i of the lane,
+	 * the forced water tiles as a bit mask in the high 32 bits, or INFEASIBLE. Tiles that are already known are included
+	 */
+	static long deduce(Board board, Lane lane, int idx) {
+		int ship = 0;
+		int water = 0;
+		for (int i = 0; i < board.SIZE; i++) {
+			Value value = board.tile(lane, idx, i).getValue();
+			if (value == Value.WATER) water |= 1 << i;
+			else if (value != Value.BLANK) ship |= 1 << i;
+		}
+		return deduce(board.SIZE, board.MAX_SHIP_SIZE, ship, water, board.getSum(lane, idx));
+	}
+
+	/**
+	 * Finds the forced tiles of a lane of up to MASK_SIZE tiles given as bit masks
+	 * @param size - The number of tiles in the lane
+	 * @param maxRun - The length of the largest ship
+	 * @param ship - The tiles known to be ships, where bit i is the tile at position i of the lane
+	 * @param water - The tiles known to be water
+	 * @param sum - The number of ship tiles in the lane
+	 * @return The forced ship tiles in the low 32 bits and the forced water tiles in the high 32 bits, or INFEASIBLE
+	 */
+	static long deduce(int size, int maxRun, int ship, int water, int sum) {
+		if (sum > size) return INFEASIBLE;
+		if (size <= TABLE_SIZE) {
+			int pattern = 0;
+			for (int i = size - 1; i >= 0; i--) {
+				pattern = pattern * 3 + ((water >> i & 1) != 0 ? 1 : (ship >> i & 1) != 0 ? 2 : 0);
+			}
+			int entry = table(size, maxRun)[pattern * (size + 1) + sum];
+			if ((entry >> 2 * size & 1) == 0) return INFEASIBLE;
+			int full = (1 << size) - 1;
+			return (entry & full) | (long) (entry >> size & full) << 32;
+		}
+		// A lane with every tile known only needs checking
+		int full = -1 >>> 32 - size;
+		if ((ship | water) == full) {
+			if (Integer.bitCount(ship) != sum || longestRun(ship) > maxRun) return INFEASIBLE;
+			return (ship & 0xFFFFFFFFL) | (long) water << 32;
+		}
+		BitSet ships = BitSet.valueOf(new long[] {ship & 0xFFFFFFFFL});
+		BitSet waters = BitSet.valueOf(new long[] {water & 0xFFFFFFFFL});
+		if (!solve(size, maxRun, ships, waters, sum)) return INFEASIBLE;
+		long forcedShip = ships.isEmpty() ? 0 : ships.toLongArray()[0];
+		long forcedWater = waters.isEmpty() ? 0 : waters.toLongArray()[0];
+		return forcedShip | forcedWater << 32;
+	}
+
+	/**
+	 * Finds the forced tiles of a lane of any length
+	 * @param board - The puzzle Board being solved
+	 * @param lane - The type or lane, row or column
+	 * @param idx - The lane index, between 0 and SIZE-1
+	 * @param ship - Set to the forced ship tiles, where bit i is the tile at position i of the lane
+	 * @param water - Set to the forced water tiles
+	 * @return False if the lane cannot be finished. Tiles that are already known are included
+	 */
+	static boolean deduce(Board board, Lane lane, int idx, BitSet ship, BitSet water) {
+		ship.clear();
+		water.clear();
+		for (int i = 0; i < board.SIZE; i++) {
+			Value value = board.tile(lane, idx, i).getValue();
+			if (value == Value.WATER) water.set(i);
+			else if (value != Value.BLANK) ship.set(i);
+		}
+		return deduce(board.SIZE, board.MAX_SHIP_SIZE, ship, water, board.getSum(lane, idx));
+	}
+
+	/**
+	 * Finds the forced tiles of a lane of any length given as BitSets
+	 * @param size - The number of tiles in the lane
+	 * @param maxRun - The length of the largest ship
+	 * @param ship - The tiles known to be ships, where bit i is the tile at position i of the lane. Set to the forced
+	 *             ship tiles
+	 * @param water - The tiles known to be water. Set to the forced water tiles
+	 * @param sum - The number of ship tiles in the lane
+	 * @return False if the lane cannot be finished
+	 */
+	static boolean deduce(int size, int maxRun, BitSet ship, BitSet water, int sum) {
+		if (sum > size) return false;
+		if (size > MASK_SIZE) return solve(size, maxRun, ship, water, sum);
+		long forced = deduce(size, maxRun, ship.isEmpty() ? 0 : (int) ship.toLongArray()[0],
+				water.isEmpty() ? 0 : (int) water.toLongArray()[0], sum);
+		if (forced == INFEASIBLE) return false;
+		ship.clear();
+		water.clear();
+		for (int i = 0; i < size; i++) {
+			if ((forced >>> i & 1) != 0) ship.set(i);
+			if ((forced >>> 32 + i & 1) != 0) water.set(i);
+		}
+		return true;
+	}
+
+	//========== Private Methods ==========//
+
+	/**
+	 * Gets the table for a lane length and largest ship, building it on first use. The entry for a pattern and sum is at
+	 * pattern * (size + 1) + sum, and holds the forced ship tiles in bits 0 to size-1, the forced water tiles in the next
+	 * size bits and a flag above them that is set if the lane can be finished
+	 */
+	private static int[] table(int size, int maxRun) {
+		return TABLES.computeIfAbsent(size * 64 + maxRun, key -> build(size, maxRun));
+	}
+
+	/**
+	 * Builds a table by taking each finished lane and every pattern it could be the finish of
+	 */
+	private static int[] build(int size, int maxRun) {
+		int full = (1 << size) - 1;
+		int feasible = 1 << 2 * size;
+		int[] power = new int[size + 1];
+		power[0] = 1;
+		for (int i = 1; i <= size; i++) power[i] = power[i - 1] * 3;
+		int[] table = new int[power[size] * (size + 1)];
+		for (int ships = 0; ships <= full; ships++) {
+			if (longestRun(ships) > maxRun) continue;
+			int sum = Integer.bitCount(ships);
+			int entry = feasible | ships | (~ships & full) << size;
+			// Every subset of the tiles may already be known, with the rest blank
+			for (int known = 0; known <= full; known++) {
+				int pattern = 0;
+				for (int i = 0; i < size; i++) {
+					if ((known >> i & 1) != 0) pattern += power[i] * ((ships >> i & 1) != 0 ? 2 : 1);
+				}
+				int at = pattern * (size + 1) + sum;
+				table[at] = (table[at] & feasible) == 0 ? entry : table[at] & entry;
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * Finds the forced tiles of a lane by trying every way to fill its blanks
+	 * @return The forced ship tiles and forced water tiles, or "infeasible"
+	 */
+	private static String bruteForce(int size, int maxRun, BitSet ship, BitSet water, int sum) {
+		int[] blank = new int[size];
+		int blanks = 0;
+		for (int i = 0; i < size; i++) {
+			if (!ship.get(i) && !water.get(i)) blank[blanks++] = i;
+		}
+		BitSet canShip = null;
+		BitSet canWater = null;
+		for (int fill = 0; fill < 1 << blanks; fill++) {
+			BitSet finish = (BitSet) ship.clone();
+			for (int b = 0; b < blanks; b++) {
+				if ((fill >> b & 1) != 0) finish.set(blank[b]);
+			}
+			if (finish.cardinality() != sum) continue;
+			int longest = 0;
+			for (int i = 0, run = 0; i < size; i++) {
+				run = finish.get(i) ? run + 1 : 0;
+				longest = Math.max(longest, run);
+			}
+			if (longest > maxRun) continue;
+			BitSet empty = new BitSet(size);
+			empty.set(0, size);
+			empty.andNot(finish);
+			if (canShip == null) {
+				canShip = finish;
+				canWater = empty;
+			} else {
+				canShip.or(finish);
+				canWater.or(empty);
+			}
+		}
+		if (canShip == null) return "infeasible";
+		BitSet forcedShip = new BitSet(size);
+		forcedShip.set(0, size);
+		forcedShip.andNot(canWater);
+		BitSet forcedWater = new BitSet(size);
+		forcedWater.set(0, size);
+		forcedWater.andNot(canShip);
+		return forcedShip + " " + forcedWater;
+	}
+
+	private static int longestRun(int ships) {
+		int longest = 0;
+		while (ships != 0) {
+			ships &= ships << 1;
+			longest++;
+		}
+		return longest;
+	}
+
+	/**
+	 * Works out the forced tiles of a lane directly, by finding which counts and run lengths can be reached before each
+	 * tile and which can still be finished after it. The run lengths for each position and count are held as a bit mask
+	 * @param ship - The tiles known to be ships. Set to the forced ship tiles
+	 * @param water - The tiles known to be water. Set to the forced water tiles
+	 * @return False if the lane cannot be finished
+	 */
+	private static boolean solve(int size, int maxRun, BitSet ship, BitSet water, int sum) {
+		// No run can be longer than the lane, however long the largest ship is
+		int longest = Math.min(maxRun, size);
+		if (longest > MAX_RUN) throw new IllegalArgumentException("Ships longer than " + MAX_RUN + " tiles are not supported");
+		int counts = sum + 2;
+		long runs = (1L << longest + 1) - 1;	// Run lengths 0 to longest
+		// before[i * counts + c]: the run lengths the first i tiles can end with while holding c ships
+		long[] before = new long[(size + 1) * counts];
+		long[] after = new long[(size + 1) * counts];
+		before[0] = 1;
+		for (int i = 0; i < size; i++) {
+			boolean isShip = ship.get(i);
+			boolean isWater = water.get(i);
+			for (int c = 0; c <= sum; c++) {
+				long reached = before[i * counts + c];
+				if (reached == 0) continue;
+				if (!isShip) before[(i + 1) * counts + c] |= 1;
+				if (!isWater) before[(i + 1) * counts + c + 1] |= reached << 1 & runs;
+			}
+		}
+		after[size * counts + sum] = runs;
+		for (int i = size - 1; i >= 0; i--) {
+			boolean isShip = ship.get(i);
+			boolean isWater = water.get(i);
+			for (int c = 0; c <= sum; c++) {
+				int next = (i + 1) * counts + c;
+				long finish = 0;
+				if (!isShip && (after[next] & 1) != 0) finish = runs;
+				if (!isWater) finish |= after[next + 1] >>> 1;
+				after[i * counts + c] = finish;
+			}
+		}
+		if ((after[0] & 1) == 0) return false;
+		for (int i = 0; i < size; i++) {
+			boolean isShip = ship.get(i);
+			boolean isWater = water.get(i);
+			boolean canShip = false;
+			boolean canWater = false;
+			for (int c = 0; c <= sum; c++) {
+				long reached = before[i * counts + c];
+				if (reached == 0) continue;
+				int next = (i + 1) * counts + c;
+				if (!isShip && (after[next] & 1) != 0) canWater = true;
+				if (!isWater && (reached & after[next + 1] >>> 1) != 0) canShip = true;
+			}
+			ship.set(i, !canWater);
+			water.set(i, !canShip);
+		}
+		return true;
+	}
+}
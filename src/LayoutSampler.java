@@ -0,0 +1,357 @@
+import Enums.Value;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The LayoutSampler class draws random fleet layouts, with every ship of a fleet placed so that no two ships touch,
+ * including diagonally. Every possible placement of each ship length is worked out once, as a mask of the tiles it
+ * covers and a mask of the tiles it blocks for later ships. A layout then places the ships from largest to smallest.
+ * Each ship first tries a few random placements, which usually finds room on a sparse grid with a few word-wide ANDs.
+ * If none fit, and always for submarines, which fill the last gaps where most draws miss, it instead builds the mask
+ * of every start tile with room for the ship, shifting the free tiles along each orientation, and picks one of those
+ * starts at random. Both steps choose evenly among the placements that fit, so the layouts are the same as if the
+ * ship kept drawing until one fit.
+ *
+ * A sampler is not thread safe. Each thread should have its own, seeded separately, and each seed gives the same
+ * sequence of layouts every time.
+ *
+ * Usage: java LayoutSampler [size] [threads] [seconds]
+ */
+class LayoutSampler {
+
+	//========== State ==========//
+
+	private static final int ATTEMPTS = 16;	// Random placements tried per ship before searching the free tiles
+
+	private final int size;				// The number of rows and columns
+	private final int[] fleet;			// The number of ships of each size, where fleet[0] is the number of submarines
+	private final int words;			// The number of longs in a mask of every tile
+	private final int[] lengths;		// The length of each ship to place, largest first
+	private final int[] count;			// count[length] is the number of placements of a ship of that length
+	private final long[][] cover;		// cover[length] holds the tiles covered by each placement, words longs apiece
+	private final long[][] block;		// block[length] holds the tiles covered by or touching each placement
+	private final int[][] code;			// code[length] holds the start index times two, plus one if vertical, of each placement
+	private final long[][] acrossStart;	// acrossStart[length] holds the tiles a horizontal ship or a submarine may start on
+	private final long[][] downStart;	// downStart[length] holds the tiles a vertical ship may start on
+	private final SplittableRandom random;
+	private final long[] blocked;		// The tiles no later ship may cover in the layout being drawn
+	private final long[] occupied;		// The tiles covered by ships in the last layout
+	private final int[] placements;		// The placement chosen for each ship in the last layout
+	private final long[] free;			// The tiles not blocked, while searching for room
+	private final long[] across;		// The tiles a horizontal ship has room to start on, while searching for room
+	private final long[] down;			// The tiles a vertical ship has room to start on, while searching for room
+
+	//========== Constructor ==========//
+
+	/**
+	 * Creates a sampler for a board size and fleet
+	 * @param size - The number of rows and columns
+	 * @param fleet - The number of ships of each size, where fleet[0] is the number of submarines
+	 * @param seed - The seed for this sampler's random numbers
+	 */
+	LayoutSampler(int size, int[] fleet, long seed) {
+		this.size = size;
+		this.fleet = fleet.clone();
+		this.words = (size * size + Long.SIZE - 1) / Long.SIZE;
+		int ships = 0;
+		for (int n : fleet) ships += n;
+		this.lengths = new int[ships];
+		for (int length = fleet.length, i = 0; length >= 1; length--) {
+			for (int n = 0; n < fleet[length - 1]; n++) lengths[i++] = length;
+		}
+		this.count = new int[fleet.length + 1];
+		this.cover = new long[fleet.length + 1][];
+		this.block = new long[fleet.length + 1][];
+		this.code = new int[fleet.length + 1][];
+		this.acrossStart = new long[fleet.length + 1][];
+		this.downStart = new long[fleet.length + 1][];
+		for (int length = 1; length <= fleet.length; length++) buildPlacements(length);
+		this.random = new SplittableRandom(seed);
+		this.blocked = new long[words];
+		this.occupied = new long[words];
+		this.placements = new int[ships];
+		this.free = new long[words];
+		this.across = new long[words];
+		this.down = new long[words];
+	}
+
+	public static void main(String[] args) throws Exception {
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+		double seconds = args.length > 2 ? Double.parseDouble(args[2]) : 3;
+		int[] fleet = Benchmark.fleetFor(size);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		ArrayList<Future<long[]>> results = new ArrayList<>();
+		long end = System.nanoTime() + (long) (seconds * 1e9);
+		for (int t = 0; t < threads; t++) {
+			long seed = t;
+			results.add(pool.submit(() -> {
+				LayoutSampler sampler = new LayoutSampler(size, fleet, seed);
+				long layouts = 0;
+				long checksum = 0;
+				while (System.nanoTime() < end) {
+					for (int i = 0; i < 1000; i++) checksum += sampler.next()[0];
+					layouts += 1000;
+				}
+				return new long[] {layouts, checksum};
+			}));
+		}
+		long total = 0;
+		long checksum = 0;
+		for (Future<long[]> result : results) {
+			total += result.get()[0];
+			checksum ^= result.get()[1];
+		}
+		pool.shutdown();
+		System.out.printf(Locale.ROOT, "%dx%d: %.0f layouts/s over %d threads, %.0f layouts/s per thread (checksum %x)%n",
+				size, size, total / seconds, threads, total / seconds / threads, checksum);
+	}
+
+	//========== Methods ==========//
+
+	/**
+	 * Draws the next layout
+	 * @return The tiles covered by ships, where bit (index % 64) of word (index / 64) is the tile at index ROW * SIZE +
+	 * COL. The array is reused by the next call
+	 */
+	long[] next() {
+		while (!tryLayout()) {
+			// The grid ran out of room, start again
+		}
+		return occupied;
+	}
+
+	/**
+	 * Gets where each ship of the last layout was placed
+	 * @param ship - The ship, in order from largest to smallest
+	 * @return The index of the ship's northern-most or western-most tile
+	 */
+	int start(int ship) {
+		return placements[ship] >> 1;
+	}
+
+	/**
+	 * Checks if a ship of the last layout is vertical
+	 * @param ship - The ship, in order from largest to smallest
+	 * @return True if vertical, false if horizontal or a submarine
+	 */
+	boolean vertical(int ship) {
+		return (placements[ship] & 1) != 0;
+	}
+
+	/**
+	 * Gets the length of a ship
+	 * @param ship - The ship, in order from largest to smallest
+	 * @return The length in tiles
+	 */
+	int length(int ship) {
+		return lengths[ship];
+	}
+
+	/**
+	 * Gets the number of ships in each layout
+	 * @return The number of ships in the fleet
+	 */
+	int ships() {
+		return lengths.length;
+	}
+
+	/**
+	 * Checks if this sampler draws layouts for a board size and fleet
+	 * @param size - The number of rows and columns
+	 * @param fleet - The number of ships of each size, where fleet[0] is the number of submarines
+	 * @return True if both match
+	 */
+	boolean matches(int size, int[] fleet) {
+		return this.size == size && Arrays.equals(this.fleet, fleet);
+	}
+
+	/**
+	 * Converts the last layout into a grid of ship pieces and water
+	 * @return A fully solved grid of values
+	 */
+	Value[][] toGrid() {
+		Value[][] grid = new Value[size][size];
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) grid[i][j] = Value.WATER;
+		}
+		for (int ship = 0; ship < lengths.length; ship++) {
+			int length = lengths[ship];
+			boolean vertical = vertical(ship);
+			int row = start(ship) / size;
+			int col = start(ship) % size;
+			for (int k = 0; k < length; k++) {
+				int r = vertical ? row + k : row;
+				int c = vertical ? col : col + k;
+				if (length == 1) grid[r][c] = Value.SHIP_SUB;
+				else if (k == 0) grid[r][c] = vertical ? Value.SHIP_NORTH : Value.SHIP_WEST;
+				else if (k == length - 1) grid[r][c] = vertical ? Value.SHIP_SOUTH : Value.SHIP_EAST;
+				else grid[r][c] = vertical ? Value.SHIP_MID_V : Value.SHIP_MID_H;
+			}
+		}
+		return grid;
+	}
+
+	//========== Private Methods ==========//
+
+	/**
+	 * Places every ship, largest first
+	 * @return True if every ship was placed, false if a ship found no room
+	 */
+	private boolean tryLayout() {
+		for (int w = 0; w < words; w++) {
+			blocked[w] = 0;
+			occupied[w] = 0;
+		}
+		for (int ship = 0; ship < lengths.length; ship++) {
+			int length = lengths[ship];
+			long[] covers = cover[length];
+			int placement = -1;
+			int attempts = length == 1 ? 0 : ATTEMPTS;
+			for (int attempt = 0; attempt < attempts && placement < 0; attempt++) {
+				int p = below(count[length]);
+				int at = p * words;
+				boolean fits = true;
+				for (int w = 0; w < words && fits; w++) fits = (covers[at + w] & blocked[w]) == 0;
+				if (fits) placement = p;
+			}
+			if (placement < 0) placement = pickFree(length);
+			if (placement < 0) return false;
+			int at = placement * words;
+			for (int w = 0; w < words; w++) {
+				occupied[w] |= covers[at + w];
+				blocked[w] |= block[length][at + w];
+			}
+			placements[ship] = code[length][placement];
+		}
+		return true;
+	}
+
+	/**
+	 * Picks one of the placements of a ship length that miss every blocked tile, each as likely as the others
+	 * @return The placement, or -1 if there is no room for the ship
+	 */
+	private int pickFree(int length) {
+		for (int w = 0; w < words; w++) {
+			free[w] = ~blocked[w];
+			across[w] = free[w] & acrossStart[length][w];
+			down[w] = length == 1 ? 0 : free[w] & downStart[length][w];
+		}
+		for (int k = 1; k < length; k++) {
+			for (int w = 0; w < words; w++) {
+				across[w] &= bitsFrom(free, w, k);
+				down[w] &= bitsFrom(free, w, k * size);
+			}
+		}
+		int acrossCount = 0;
+		int total = 0;
+		for (int w = 0; w < words; w++) {
+			acrossCount += Long.bitCount(across[w]);
+			total += Long.bitCount(down[w]);
+		}
+		total += acrossCount;
+		if (total == 0) return -1;
+		int pick = below(total);
+		boolean vertical = pick >= acrossCount;
+		int start = nthBit(vertical ? down : across, vertical ? pick - acrossCount : pick);
+		int span = size - length + 1;
+		if (length == 1) return start;
+		if (!vertical) return start / size * span + start % size;
+		return size * span + start;
+	}
+
+	/**
+	 * Gets the 64 bits of a mask that start a number of tiles after the first tile of a word
+	 */
+	private long bitsFrom(long[] mask, int w, int shift) {
+		int word = w + (shift >>> 6);
+		int offset = shift & 63;
+		long bits = word < words ? mask[word] >>> offset : 0;
+		if (offset != 0 && word + 1 < words) bits |= mask[word + 1] << (Long.SIZE - offset);
+		return bits;
+	}
+
+	/**
+	 * Gets the index of the nth set bit of a mask, counting from zero. Within the word, the running bit counts of
+	 * each byte are compared with n all at once, which finds the byte without a branch per bit
+	 */
+	private int nthBit(long[] mask, int n) {
+		int w = 0;
+		for (int bits = Long.bitCount(mask[0]); n >= bits; bits = Long.bitCount(mask[++w])) n -= bits;
+		long x = mask[w];
+		long sums = x - ((x >>> 1) & 0x5555555555555555L);
+		sums = (sums & 0x3333333333333333L) + ((sums >>> 2) & 0x3333333333333333L);
+		sums = ((sums + (sums >>> 4)) & 0x0F0F0F0F0F0F0F0FL) * 0x0101010101010101L;
+		long passed = ((n * 0x0101010101010101L | 0x8080808080808080L) - sums) & 0x8080808080808080L;
+		int place = Long.bitCount(passed) * Byte.SIZE;
+		int rank = n - (int) (sums << Byte.SIZE >>> place & 0xFF);
+		long bits = x >>> place & 0xFF;
+		for (int i = 0; i < rank; i++) bits &= bits - 1;
+		return w * Long.SIZE + place + Long.numberOfTrailingZeros(bits);
+	}
+
+	/**
+	 * Draws a random number from 0 up to a bound, each as likely as the others. The high half of a 32-bit draw times
+	 * the bound avoids the division SplittableRandom.nextInt(bound) makes on every call
+	 */
+	private int below(int bound) {
+		long product = Integer.toUnsignedLong(random.nextInt()) * bound;
+		if ((product & 0xFFFFFFFFL) < bound) {
+			long threshold = (1L << Integer.SIZE) % bound;
+			while ((product & 0xFFFFFFFFL) < threshold) product = Integer.toUnsignedLong(random.nextInt()) * bound;
+		}
+		return (int) (product >>> Integer.SIZE);
+	}
+
+	/**
+	 * Works out every placement of a ship length. Horizontal placements come first, then vertical ones, and a
+	 * submarine has only one orientation
+	 */
+	private void buildPlacements(int length) {
+		int across = size * (size - length + 1);
+		int total = length == 1 ? size * size : 2 * across;
+		count[length] = total;
+		cover[length] = new long[total * words];
+		block[length] = new long[total * words];
+		code[length] = new int[total];
+		acrossStart[length] = new long[words];
+		downStart[length] = new long[words];
+		for (int p = 0; p < total; p++) {
+			code[length][p] = placementCode(length, p);
+			boolean vertical = (code[length][p] & 1) != 0;
+			int row = (code[length][p] >> 1) / size;
+			int col = (code[length][p] >> 1) % size;
+			set(vertical ? downStart[length] : acrossStart[length], 0, row * size + col);
+			for (int k = 0; k < length; k++) {
+				int r = vertical ? row + k : row;
+				int c = vertical ? col : col + k;
+				set(cover[length], p, r * size + c);
+				for (int i = Math.max(r - 1, 0); i <= Math.min(r + 1, size - 1); i++) {
+					for (int j = Math.max(c - 1, 0); j <= Math.min(c + 1, size - 1); j++) set(block[length], p, i * size + j);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Converts a placement number into its start index and orientation
+	 * @return The start index times two, plus one if vertical
+	 */
+	private int placementCode(int length, int p) {
+		int across = size - length + 1;
+		if (length == 1) return p << 1;
+		if (p < size * across) return (p / across * size + p % across) << 1;
+		p -= size * across;
+		return (p / size * size + p % size) << 1 | 1;
+	}
+
+	private void set(long[] masks, int p, int index) {
+		masks[p * words + index / Long.SIZE] |= 1L << index;
+	}
+}
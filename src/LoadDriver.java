@@ -0,0 +1,96 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The LoadDriver class measures the throughput and latency of the solve service. It sends the puzzles from a puzzle
+ * file round robin from a number of concurrent clients, then reports requests per second, latency percentiles and the
+ * count of each response status.
+ *
+ * Usage: java LoadDriver [url] [clients] [requests] [puzzle file]
+ * Pass "local" as the url to start a server in the same JVM on a free port.
+ */
+public class LoadDriver {
+
+	public static void main(String[] args) throws Exception {
+		String url = args.length > 0 ? args[0] : "local";
+		int clients = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+		int requests = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+		String file = args.length > 3 ? args[3] : Reader.PUZZLE_FILE;
+
+		Server server = null;
+		if (url.equals("local")) {
+			int workers = Runtime.getRuntime().availableProcessors();
+			server = new Server(0, workers, workers * 4, 2000);
+			server.start();
+			url = "http://127.0.0.1:" + server.port() + "/solve";
+		}
+		ArrayList<String> puzzles = readPuzzles(file);
+		long[] latency = new long[requests];
+		int[] status = new int[600];
+		AtomicInteger next = new AtomicInteger();
+		HttpClient client = HttpClient.newHttpClient();
+		URI uri = URI.create(url);
+
+		ExecutorService executor = Executors.newFixedThreadPool(clients);
+		long start = System.nanoTime();
+		for (int c = 0; c < clients; c++) {
+			executor.execute(() -> {
+				int i;
+				while ((i = next.getAndIncrement()) < requests) {
+					HttpRequest request = HttpRequest.newBuilder(uri)
+							.POST(HttpRequest.BodyPublishers.ofString(puzzles.get(i % puzzles.size()))).build();
+					long sent = System.nanoTime();
+					int code;
+					try {
+						code = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+					} catch (IOException | InterruptedException e) {
+						code = 0;
+					}
+					latency[i] = System.nanoTime() - sent;
+					synchronized (status) {
+						status[code]++;
+					}
+				}
+			});
+		}
+		executor.shutdown();
+		executor.awaitTermination(1, TimeUnit.HOURS);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		if (server != null) server.stop();
+
+		Arrays.sort(latency);
+		System.out.printf("Requests: %d from %d clients in %.2fs (%.1f req/s)%n", requests, clients, seconds, requests / seconds);
+		System.out.printf("Latency ms: p50 %.2f  p90 %.2f  p99 %.2f  max %.2f%n", percentile(latency, 50),
+				percentile(latency, 90), percentile(latency, 99), latency[requests - 1] / 1e6);
+		for (int code = 0; code < status.length; code++) {
+			if (status[code] > 0) System.out.println("Status " + (code == 0 ? "error" : code) + ": " + status[code]);
+		}
+	}
+
+	private static double percentile(long[] sorted, int p) {
+		int idx = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+		return sorted[Math.max(idx, 0)] / 1e6;
+	}
+
+	private static ArrayList<String> readPuzzles(String file) throws IOException {
+		ArrayList<String> puzzles = new ArrayList<>();
+		try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+			String text;
+			while ((text = Reader.nextPuzzle(in)) != null) {
+				puzzles.add(text);
+			}
+		}
+		return puzzles;
+	}
+}
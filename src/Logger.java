@@ -1,4 +1,5 @@
 import java.io.Serializable;
+import java.util.Arrays;
 
 /**
  * Created by Matt on 8/1/2017.
@@ -11,12 +12,14 @@ public class Logger implements Serializable {
 
 	public boolean changed;	// Indicates whether the state of the parent Board has changed since the last reset
 	private String log;		// A multi-line string of actions taken on the board
+	private int[] runs;		// The number of times each solver level has been run on the board
 
 	//========== Constructor ==========//
 
 	Logger() {
 		this.changed = false;
 		this.log = "";
+		this.runs = new int[0];
 	}
 
 	//========== Package Methods ==========//
@@ -29,6 +32,24 @@ public class Logger implements Serializable {
 		log += s + "\n";
 	}
 
+	/**
+	 * Records that a solver level was run on the board
+	 * @param level - The level, starting at 1
+	 */
+	void countRun(int level) {
+		if (level > runs.length) runs = Arrays.copyOf(runs, level);
+		runs[level - 1]++;
+	}
+
+	/**
+	 * Gets the number of times a solver level has been run on the board
+	 * @param level - The level, starting at 1
+	 * @return The number of runs
+	 */
+	int getRuns(int level) {
+		return level <= runs.length ? runs[level - 1] : 0;
+	}
+
 	void setChanged() {
 		changed = true;
 	}
@@ -1,13 +1,27 @@
+import Exceptions.InvalidMoveException;
 import Exceptions.PuzzleException;
 
+import java.io.*;
+import java.nio.file.Paths;
 import java.util.Scanner;
 
 /**
  * Created by Matt on 7/29/2017.
+ *
+ * With no arguments, asks which puzzles from Puzzles.txt to solve. With --batch, solves every puzzle in a file or on
+ * stdin without prompting, and writes one line of JSON per puzzle:
+ * java Main --batch [file|-] [--unordered] [--workers N] [--log] [--store dir] [--fast] [--sat]
+ * With --store, puzzles already rated in the DifficultyStore are looked up instead of solved. With --fast, puzzles are
+ * solved without being rated. With --sat, puzzles are solved without being rated by SatBackend instead of the
+ * strategies.
  */
 public class Main {
 
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length > 0) {
+			batch(args);
+			return;
+		}
 		String inputStr;
 		Scanner in = new Scanner(System.in);
 		do {
@@ -26,6 +40,40 @@ public class Main {
 		}
 	}
 
+	/**
+	 * Solve a stream of puzzles without prompting, see Batch
+	 * @param args - The command line arguments
+	 */
+	private static void batch(String[] args) throws IOException, InterruptedException {
+		String file = "-";
+		boolean ordered = true;
+		boolean withLog = false;
+		boolean rate = true;
+		boolean sat = false;
+		String storeDir = null;
+		int workers = Runtime.getRuntime().availableProcessors();
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "--batch": break;
+				case "--unordered": ordered = false; break;
+				case "--ordered": ordered = true; break;
+				case "--log": withLog = true; break;
+				case "--workers": workers = Integer.parseInt(args[++i]); break;
+				case "--store": storeDir = args[++i]; break;
+				case "--fast": rate = false; break;
+				case "--sat": rate = false; sat = true; break;
+				default: file = args[i];
+			}
+		}
+		InputStream input = file.equals("-") ? System.in : new FileInputStream(file);
+		DifficultyStore store = storeDir == null ? null : new DifficultyStore(Paths.get(storeDir));
+		try (BufferedReader in = new BufferedReader(new InputStreamReader(input))) {
+			new Batch(workers, ordered, withLog, rate, sat, store).run(in, System.out);
+		} finally {
+			if (store != null) store.close();
+		}
+	}
+
 	/**
 	 * Attempt to solve a single specified puzzle from Puzzles.txt
 	 * @param i - the ID of the puzzle to be solved
@@ -50,18 +98,21 @@ public class Main {
 	 * Attempt to solve all puzzles from Puzzles.txt
 	 */
 	private static void solveAll() {
-		try {
-			for (int i = 1; i <= 12; i++) {
-				Board board = Reader.readPuzzle(i);
+		try (BufferedReader in = new BufferedReader(new FileReader(Reader.PUZZLE_FILE))) {
+			String text;
+			while ((text = Reader.nextPuzzle(in)) != null) {
+				Board board = Reader.parse("Puzzle", text);
 				int level = Solver.solveDynamic(board);
 				if (Solver.isComplete(board)) {
-					System.out.println("Puzzle " + i + ": Solved (Difficulty " + level + ")");
+					System.out.println(board.NAME + ": Solved (Difficulty " + level + ")");
 				} else {
-					System.out.println("Puzzle " + i + ": \u001B[31mFailed\u001B[0m");
+					System.out.println(board.NAME + ": \u001B[31mFailed\u001B[0m");
 				}
 			}
 		} catch (PuzzleException e) {
 			System.out.println(e.getMessage());
+		} catch (IOException e) {
+			throw new Error(e);
 		}
 	}
 }
@@ -1,78 +1,183 @@
 import Enums.Value;
 import Exceptions.InvalidMoveException;
 
-import java.io.FileNotFoundException;
+import java.io.BufferedReader;
 import java.io.FileReader;
-import java.util.Scanner;
+import java.io.IOException;
+import java.util.ArrayList;
 
 /**
  * Created by Matt on 6/25/2016.
  * The Reader class is used to convert the data in Puzzles.txt into instances of Board that can be solved
+ *
+ * Each puzzle is written as an identifier line such as "1)", followed by one line of tiles per row, a line of row sums
+ * and a line of column sums. The size of the board is taken from the number of tile rows. An optional fourth line gives
+ * the fleet as the number of ships of each size, starting with submarines. Without it the classic fleet is used.
+ * 1)
+ * . . . O
+ * . . . .
+ * < > . .
+ * . . . .
+ * {1,0,2,0}
+ * {1,1,0,1}
+ * {1,1}
  */
 class Reader {
 
+	static final String PUZZLE_FILE = "src/FreePuzzles.txt";	// The default puzzle file
+	static final int CLASSIC_MAX_SHIP_SIZE = 4;					// The largest ship when no fleet is given
+
 	/**
 	 * Converts a single puzzle from Puzzles.txt into a Board object
 	 * @param id - The identifier of the desired puzzle
 	 * @return An instance of Board ready to be solved
 	 */
 	static Board readPuzzle(int id) {
+		return readPuzzle(PUZZLE_FILE, id);
+	}
 
-		try {
+	/**
+	 * Converts a single puzzle from a puzzle file into a Board object
+	 * @param file - The path of the puzzle file
+	 * @param id - The identifier of the desired puzzle
+	 * @return An instance of Board ready to be solved
+	 */
+	static Board readPuzzle(String file, int id) {
 
-			Scanner scanner = new Scanner(new FileReader("src/FreePuzzles.txt"));
-			scanner.useDelimiter("\\D");
+		try (BufferedReader in = new BufferedReader(new FileReader(file))) {
 
-			while (true) {
-				String line = scanner.nextLine();
-				if (line.equals(id + ")")) {
-					break;
-				}
+			String line;
+			do {
+				line = in.readLine();
+				if (line == null) throw new Error("Puzzle " + id + " not found in " + file);
+			} while (!line.trim().equals(id + ")"));
+
+			ArrayList<String> lines = new ArrayList<>();
+			while ((line = in.readLine()) != null && !line.trim().isEmpty()) {
+				lines.add(line);
+			}
+			return parse("Puzzle " + id, lines);
+		} catch(IOException e) {
+			throw new Error(e);
+		} catch(InvalidMoveException e) {
+			System.out.println(e);
+			return null;
+		}
+	}
+
+	/**
+	 * Reads the text of the next puzzle from a stream. A puzzle starts with an identifier line such as "1)" or with a
+	 * line of tiles in the format of Board.toString, and ends at the next blank line. Any other text is skipped
+	 * @param in - The stream to read from
+	 * @return The text of the puzzle, or null at the end of the stream
+	 * @throws IOException if the stream cannot be read
+	 */
+	static String nextPuzzle(BufferedReader in) throws IOException {
+		String line;
+		do {
+			line = in.readLine();
+			if (line == null) return null;
+		} while (!line.trim().matches("\\d+\\)") && !line.contains("|"));
+		StringBuilder text = new StringBuilder(line).append('\n');
+		while ((line = in.readLine()) != null && !line.trim().isEmpty()) {
+			text.append(line).append('\n');
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Converts the text of a single puzzle into a Board object. The text may be in the format of Puzzles.txt, with or
+	 * without the identifier line, or in the format produced by Board.toString
+	 * @param name - The name to give the Board if the text has no identifier line
+	 * @param text - The text of the puzzle
+	 * @return An instance of Board ready to be solved
+	 * @throws InvalidMoveException if the tiles given in the puzzle conflict with each other
+	 */
+	static Board parse(String name, String text) throws InvalidMoveException {
+		ArrayList<String> lines = new ArrayList<>();
+		for (String line : text.split("\\r?\\n")) {
+			if (!line.trim().isEmpty()) lines.add(line);
+		}
+		if (!lines.isEmpty() && lines.get(0).trim().matches("\\d+\\)")) {
+			String id = lines.remove(0).trim();
+			name = "Puzzle " + id.substring(0, id.length() - 1);
+		}
+		return parse(name, lines);
+	}
+
+	/**
+	 * Converts the lines of a single puzzle, excluding the identifier line, into a Board object
+	 * @param name - The name to give the Board
+	 * @param lines - The tile rows followed by the row sum, column sum and optional fleet lines, or the lines produced
+	 *              by Board.toString followed by an optional fleet line
+	 * @return An instance of Board ready to be solved
+	 * @throws InvalidMoveException if the tiles given in the puzzle conflict with each other
+	 */
+	static Board parse(String name, ArrayList<String> lines) throws InvalidMoveException {
+		ArrayList<String> data = new ArrayList<>();
+		int[] rowSum;
+		int[] colSum;
+		int idx = 0;
+		if (!lines.isEmpty() && lines.get(0).contains("|")) {
+			// Read tile data and row sums from "= . < | 2" lines
+			ArrayList<String> sums = new ArrayList<>();
+			while (idx < lines.size() && lines.get(idx).contains("|")) {
+				String[] parts = lines.get(idx++).split("\\|");
+				data.add(parts[0].replaceAll("\\s",""));
+				sums.add(parts.length > 1 ? parts[1] : "");
 			}
+			rowSum = parseList(String.join(",", sums));
+			// Skip the separator line and read col sums
+			if (idx < lines.size() && lines.get(idx).trim().startsWith("_")) idx++;
+			if (idx >= lines.size()) throw new IllegalArgumentException(name + ": missing column sums");
+			colSum = parseList(lines.get(idx++));
+		} else {
 			// Read tile data
-			String[] data = new String[10];
-			for (int i = 0; i < 10; i++) {
-				data[i] = scanner.nextLine().replaceAll("\\s","");
+			while (idx < lines.size() && !lines.get(idx).trim().startsWith("{")) {
+				data.add(lines.get(idx++).replaceAll("\\s",""));
 			}
-			// Read row sum data
-			int[] rowSum = new int[10];
-			for (int i = 0; i < 10; i++) {
-				while (scanner.hasNext()) {
-					if (scanner.hasNextInt()) {
-						rowSum[i] = scanner.nextInt();
-						break;
-					}
-					scanner.next();
-				}
+			if (idx + 2 > lines.size()) throw new IllegalArgumentException(name + ": missing row or column sums");
+			// Read row and col data
+			rowSum = parseList(lines.get(idx++));
+			colSum = parseList(lines.get(idx++));
+		}
+		int size = data.size();
+		int[] fleet = idx < lines.size() ? parseList(lines.get(idx)) : Board.classicFleet(CLASSIC_MAX_SHIP_SIZE);
+		if (rowSum.length != size || colSum.length != size) {
+			throw new IllegalArgumentException(name + ": expected " + size + " row and column sums");
+		}
+		Board board = new Board(name, size, fleet, rowSum, colSum);
+
+		for (int i = 0; i < size; i++) {
+			if (data.get(i).length() != size) {
+				throw new IllegalArgumentException(name + ": expected " + size + " tiles in row " + i);
 			}
-			// Read col sum data
-			int[] colSum = new int[10];
-			for (int i = 0; i < 10; i++) {
-				while (scanner.hasNext()) {
-					if (scanner.hasNextInt()) {
-						colSum[i] = scanner.nextInt();
-						break;
-					}
-					scanner.next();
+			for (int j = 0; j < size; j++) {
+				if (data.get(i).charAt(j) != '.') {
+					board.TILES[i][j].setValue(Value.fromChar(data.get(i).charAt(j)));
 				}
 			}
-			scanner.close();
-			Board board = new Board("Puzzle " + id,10,4,rowSum,colSum);
+		}
+		board.log.clear();
+		return board;
+	}
 
-			for (int i = 0; i < 10; i++) {
-				for (int j = 0; j < 10; j++) {
-					if (data[i].charAt(j) != '.') {
-						board.TILES[i][j].setValue(Value.fromChar(data[i].charAt(j)));
-					}
-				}
+	/**
+	 * Converts a line of numbers separated by commas or spaces, such as "{1,0,2}", into an array
+	 * @param line - The line to convert
+	 * @return An array of integers
+	 * @throws IllegalArgumentException if the line contains something other than numbers
+	 */
+	private static int[] parseList(String line) {
+		String[] parts = line.replaceAll("[{}]", "").trim().split("[,\\s]+");
+		int[] result = new int[parts.length];
+		try {
+			for (int i = 0; i < parts.length; i++) {
+				result[i] = Integer.parseInt(parts[i]);
 			}
-			board.log.clear();
-			return board;
-		} catch(FileNotFoundException e) {
-			throw new Error();
-		} catch(InvalidMoveException e) {
-			System.out.println(e);
-			return null;
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid list of numbers: " + line.trim());
 		}
+		return result;
 	}
 }
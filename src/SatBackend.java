@@ -0,0 +1,311 @@
+import Enums.Lane;
+import Enums.Value;
+import Exceptions.InvalidBoardException;
+import Exceptions.PuzzleException;
+
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * The SatBackend class solves a Board by encoding it as clauses for SatSolver, as an alternative to the rule based
+ * strategies for requests that only need the answer. It does not rate the puzzle.
+ *
+ * There is a variable for each tile, true if it holds a ship, and one for each place a ship could go. A placement is
+ * left out if it covers a tile known to be water, has a neighbor known to be a ship, or does not fit the shape of a
+ * known ship piece. A placement implies its tiles are ships and its neighbors are water, and a ship tile needs at least
+ * one placement covering it, so the placements chosen are exactly the ships. Each lane has exactly its sum of ship
+ * tiles and each ship size exactly its count of placements, both through a sequential counter.
+ *
+ * After a solution is found, unique adds a clause ruling it out and searches again with the same solver, keeping every
+ * clause learned by the first search.
+ *
+ * Usage: java SatBackend [puzzles per size] [size ...] to compare its speed with Solver.solveFast
+ */
+class SatBackend {
+
+	//========== State ==========//
+
+	private final Board board;
+	private final SatSolver solver = new SatSolver();
+	private final int[] tile;					// The variable of each tile, by tile index
+	private final ArrayList<int[]> placements = new ArrayList<>();	// Each placement as {variable, length, start, vertical}
+	private boolean solved;						// Whether the solver has found a solution
+
+	//========== Constructor ==========//
+
+	/**
+	 * Encodes a Board as clauses
+	 * @param board - The puzzle Board, which is not changed
+	 */
+	SatBackend(Board board) {
+		this.board = board;
+		int size = board.SIZE;
+		tile = new int[size * size];
+		for (int i = 0; i < tile.length; i++) tile[i] = solver.newVar();
+		ArrayList<ArrayList<Integer>> covering = new ArrayList<>();
+		for (int i = 0; i < tile.length; i++) covering.add(new ArrayList<>());
+
+		for (int length = 1; length <= board.MAX_SHIP_SIZE; length++) {
+			ArrayList<Integer> ofLength = new ArrayList<>();
+			for (int vertical = 0; vertical <= (length == 1 ? 0 : 1); vertical++) {
+				for (int row = 0; row + (vertical == 1 ? length : 1) <= size; row++) {
+					for (int col = 0; col + (vertical == 1 ? 1 : length) <= size; col++) {
+						int start = row * size + col;
+						if (!fits(length, start, vertical == 1)) continue;
+						int p = solver.newVar();
+						placements.add(new int[] {p, length, start, vertical});
+						ofLength.add(p);
+						encodePlacement(p, length, start, vertical == 1, covering);
+					}
+				}
+			}
+			exactly(toArray(ofLength), board.getFleet(length));
+		}
+
+		for (int i = 0; i < tile.length; i++) {
+			Value value = board.tile(i).getValue();
+			if (value == Value.WATER) solver.addClause(-tile[i]);
+			else if (value != Value.BLANK) solver.addClause(tile[i]);
+			// A ship tile must be covered by a placement
+			ArrayList<Integer> cover = covering.get(i);
+			int[] clause = new int[cover.size() + 1];
+			clause[0] = -tile[i];
+			for (int k = 0; k < cover.size(); k++) clause[k + 1] = cover.get(k);
+			solver.addClause(clause);
+		}
+		for (Lane lane : Lane.values()) {
+			for (int idx = 0; idx < size; idx++) {
+				int[] lits = new int[size];
+				for (int i = 0; i < size; i++) lits[i] = tile[board.tile(lane, idx, i).index()];
+				exactly(lits, board.getSum(lane, idx));
+			}
+		}
+	}
+
+	//========== Main ==========//
+
+	public static void main(String[] args) throws PuzzleException {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+		int[] sizes = {10, 15, 20};
+		if (args.length > 1) {
+			sizes = new int[args.length - 1];
+			for (int i = 1; i < args.length; i++) sizes[i - 1] = Integer.parseInt(args[i]);
+		}
+		System.out.println("Size  Fast(ms)  Fast solved  SAT(ms)  SAT solved  Unique(ms)  Unique  Differ");
+		for (int size : sizes) {
+			int[] fleet = Benchmark.fleetFor(size);
+			Generator generator = new Generator(size * 31L);
+			long fastNanos = 0;
+			long satNanos = 0;
+			long uniqueNanos = 0;
+			int fastSolved = 0;
+			int satSolved = 0;
+			int unique = 0;
+			int differ = 0;
+			for (int i = 0; i < count; i++) {
+				Board puzzle = generator.puzzle("SAT " + i, size, fleet, size * size / 3);
+				Board fast = puzzle.cloneBoard();
+				long start = System.nanoTime();
+				try {
+					if (Solver.solveFast(fast)) fastSolved++;
+				} catch (PuzzleException e) {
+					// Counted as unsolved
+				}
+				fastNanos += System.nanoTime() - start;
+
+				Board sat = puzzle.cloneBoard();
+				start = System.nanoTime();
+				SatBackend backend = new SatBackend(sat);
+				boolean found = backend.solve();
+				satNanos += System.nanoTime() - start;
+				if (!found) continue;
+				satSolved++;
+				backend.writeBack(sat);
+				start = System.nanoTime();
+				boolean only = backend.unique();
+				uniqueNanos += System.nanoTime() - start;
+				if (!only) continue;
+				unique++;
+				// A puzzle with one solution must get the same answer from both
+				if (!Solver.isComplete(fast) || !fast.toString().equals(sat.toString())) differ++;
+			}
+			System.out.printf(Locale.ROOT, "%-5d %8.3f  %10d  %8.3f  %10d  %10.3f  %6d  %6d%n", size, fastNanos / 1e6 / count,
+					fastSolved, satNanos / 1e6 / count, satSolved, uniqueNanos / 1e6 / count, unique, differ);
+		}
+	}
+
+	//========== Static Functions ==========//
+
+	/**
+	 * Solves a Board without rating it, in place of Solver.solveFast
+	 * @param board - The puzzle Board being solved
+	 * @return True, since a Board with a solution is always completed
+	 * @throws PuzzleException if the Board has no solution
+	 */
+	static boolean solve(Board board) throws PuzzleException {
+		SatBackend backend = new SatBackend(board);
+		if (!backend.solve()) throw new InvalidBoardException("No solution for " + board.NAME);
+		backend.writeBack(board);
+		return true;
+	}
+
+	//========== Methods ==========//
+
+	/**
+	 * Searches for a solution
+	 * @return True if one was found
+	 */
+	boolean solve() {
+		solved = solver.solve();
+		return solved;
+	}
+
+	/**
+	 * Checks that the solution found is the only one, by ruling it out and searching again. Afterwards the solver
+	 * holds the extra clause, and any other solution found replaces the first
+	 * @return True if there is no other solution
+	 */
+	boolean unique() {
+		if (!solved) throw new IllegalStateException("No solution has been found");
+		int[] clause = new int[tile.length];
+		for (int i = 0; i < tile.length; i++) clause[i] = solver.model(tile[i]) ? -tile[i] : tile[i];
+		solver.addClause(clause);
+		return !solver.solve();
+	}
+
+	/**
+	 * Copies the solution onto a Board
+	 * @param target - The puzzle Board, or a copy of it
+	 */
+	void writeBack(Board target) {
+		if (!solved) throw new IllegalStateException("No solution has been found");
+		int size = board.SIZE;
+		Value[] values = new Value[tile.length];
+		for (int i = 0; i < values.length; i++) values[i] = Value.WATER;
+		for (int[] placement : placements) {
+			if (!solver.model(placement[0])) continue;
+			for (int k = 0; k < placement[1]; k++) {
+				values[placement[2] + k * (placement[3] == 1 ? size : 1)] = piece(placement[1], k, placement[3] == 1);
+			}
+		}
+		for (int i = 0; i < values.length; i++) target.tile(i).restoreValue(values[i]);
+	}
+
+	//========== Private Methods ==========//
+
+	/**
+	 * Checks if a ship could go at a placement given the tiles already known
+	 */
+	private boolean fits(int length, int start, boolean vertical) {
+		int size = board.SIZE;
+		int row = start / size;
+		int col = start % size;
+		int endRow = vertical ? row + length - 1 : row;
+		int endCol = vertical ? col : col + length - 1;
+		for (int i = Math.max(row - 1, 0); i <= Math.min(endRow + 1, size - 1); i++) {
+			for (int j = Math.max(col - 1, 0); j <= Math.min(endCol + 1, size - 1); j++) {
+				Value known = board.TILES[i][j].getValue();
+				boolean inside = i >= row && i <= endRow && j >= col && j <= endCol;
+				if (!inside) {
+					if (known != Value.WATER && known != Value.BLANK) return false;
+				} else if (!matches(known, piece(length, (i - row) + (j - col), vertical))) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Adds the clauses tying a placement to its tiles and the water around it
+	 */
+	private void encodePlacement(int p, int length, int start, boolean vertical, ArrayList<ArrayList<Integer>> covering) {
+		int size = board.SIZE;
+		int row = start / size;
+		int col = start % size;
+		int endRow = vertical ? row + length - 1 : row;
+		int endCol = vertical ? col : col + length - 1;
+		for (int i = Math.max(row - 1, 0); i <= Math.min(endRow + 1, size - 1); i++) {
+			for (int j = Math.max(col - 1, 0); j <= Math.min(endCol + 1, size - 1); j++) {
+				int idx = i * size + j;
+				if (i >= row && i <= endRow && j >= col && j <= endCol) {
+					solver.addClause(-p, tile[idx]);
+					covering.get(idx).add(p);
+				} else {
+					solver.addClause(-p, -tile[idx]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Requires exactly a number of literals to be true, with a sequential counter where counter[i][j] means at least
+	 * j + 1 of the first i + 1 literals are true. The counter only goes up to count + 1, which is enough to tell too
+	 * many from exactly enough
+	 */
+	private void exactly(int[] lits, int count) {
+		int n = lits.length;
+		if (count > n) {
+			solver.addClause();
+			return;
+		}
+		if (count == 0 || count == n) {
+			for (int lit : lits) solver.addClause(count == 0 ? -lit : lit);
+			return;
+		}
+		int width = count + 1;
+		int[] previous = null;
+		for (int i = 0; i < n; i++) {
+			int[] counter = new int[Math.min(width, i + 1)];
+			for (int j = 0; j < counter.length; j++) {
+				counter[j] = solver.newVar();
+				boolean carried = previous != null && j < previous.length;
+				// At least j + 1 before, or this literal and at least j before
+				if (carried) solver.addClause(-previous[j], counter[j]);
+				if (j == 0) solver.addClause(-lits[i], counter[j]);
+				else solver.addClause(-lits[i], -previous[j - 1], counter[j]);
+				// And only then
+				if (j == 0) {
+					if (carried) solver.addClause(-counter[j], previous[j], lits[i]);
+					else solver.addClause(-counter[j], lits[i]);
+				} else {
+					if (carried) {
+						solver.addClause(-counter[j], previous[j], lits[i]);
+						solver.addClause(-counter[j], previous[j], previous[j - 1]);
+					} else {
+						solver.addClause(-counter[j], lits[i]);
+						solver.addClause(-counter[j], previous[j - 1]);
+					}
+				}
+			}
+			previous = counter;
+		}
+		solver.addClause(previous[count - 1]);
+		if (previous.length > count) solver.addClause(-previous[count]);
+	}
+
+	/**
+	 * Gets the ship piece at a position along a ship
+	 */
+	private static Value piece(int length, int k, boolean vertical) {
+		if (length == 1) return Value.SHIP_SUB;
+		if (k == 0) return vertical ? Value.SHIP_NORTH : Value.SHIP_WEST;
+		if (k == length - 1) return vertical ? Value.SHIP_SOUTH : Value.SHIP_EAST;
+		return vertical ? Value.SHIP_MID_V : Value.SHIP_MID_H;
+	}
+
+	/**
+	 * Checks if a known tile value allows a ship piece
+	 */
+	private static boolean matches(Value known, Value piece) {
+		if (known == Value.BLANK || known == Value.SHIP_UNID) return true;
+		if (known == Value.SHIP_MID) return piece == Value.SHIP_MID_H || piece == Value.SHIP_MID_V;
+		return known == piece;
+	}
+
+	private static int[] toArray(ArrayList<Integer> list) {
+		int[] result = new int[list.size()];
+		for (int i = 0; i < result.length; i++) result[i] = list.get(i);
+		return result;
+	}
+}
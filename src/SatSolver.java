@@ -0,0 +1,424 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+
+/**
+ * The SatSolver class decides whether a set of clauses can be satisfied, using conflict driven clause learning. Each
+ * clause watches two of its literals, so only the clauses watching a literal are visited when it becomes false. A
+ * conflict is analysed back to its first unique implication point, the learned clause is added, and the search jumps
+ * back to the level where that clause becomes unit. Variables are chosen by activity, bumped for every variable seen
+ * in a conflict, and restarts follow the Luby sequence.
+ *
+ * Literals are written as in DIMACS: variable v is the literal v, and its negation is -v. Clauses may be added between
+ * calls to solve, and every clause learned so far is kept, so a second call can reuse the work of the first.
+ */
+class SatSolver {
+
+	//========== State ==========//
+
+	private static final int RESTART_BASE = 100;	// Conflicts in the first restart interval, scaled by the Luby sequence
+	private static final double DECAY = 0.95;		// How quickly older conflicts stop counting towards activity
+
+	private int vars;						// The number of variables
+	private final ArrayList<int[]> clauses = new ArrayList<>();	// Every clause of two or more literals, learned or not
+	private int[][] watches = new int[2][];	// The clauses watching each literal, indexed by internal literal
+	private int[] watchCount = new int[2];
+	private byte[] value = new byte[1];		// 1 if a variable is true, -1 if false, 0 if unassigned
+	private int[] level = new int[1];		// The decision level at which each variable was assigned
+	private int[] reason = new int[1];		// The clause that implied each variable, or -1 for a decision
+	private boolean[] phase = new boolean[1];	// The last value of each variable, tried first when deciding
+	private boolean[] seen = new boolean[1];
+	private double[] activity = new double[1];
+	private double bump = 1;
+	private int[] heap = new int[1];		// Unassigned variables ordered by activity, plus some assigned ones
+	private int[] heapIndex = new int[1];	// The position of each variable in heap, or -1
+	private int heapSize;
+	private int[] trail = new int[1];		// Assigned literals in the order they were assigned
+	private int trailSize;
+	private int[] levelStart = new int[1];	// The trail position where each decision level starts
+	private int decisions;					// The current decision level
+	private int propagated;					// The trail position up to which literals have been propagated
+	private boolean unsatisfiable;			// Whether the clauses added so far are known to have no solution
+	private boolean[] model = new boolean[1];	// The values found by the last successful solve
+	private long conflicts;					// The number of conflicts over every call to solve
+
+	//========== Methods ==========//
+
+	/**
+	 * Adds a variable
+	 * @return The new variable, numbered from 1
+	 */
+	int newVar() {
+		int v = ++vars;
+		if (v >= value.length) grow(v * 2);
+		heapIndex[v] = -1;
+		insert(v);
+		return v;
+	}
+
+	/**
+	 * Adds a clause. Literals already false are dropped, and a clause with a literal already true is ignored. Must not
+	 * be called while solve is running
+	 * @param literals - The literals, any of which may satisfy the clause
+	 */
+	void addClause(int... literals) {
+		if (unsatisfiable) return;
+		int[] lits = new int[literals.length];
+		int count = 0;
+		for (int literal : literals) {
+			int lit = internal(literal);
+			int assigned = valueOf(lit);
+			if (assigned > 0) return;
+			if (assigned < 0) continue;
+			boolean duplicate = false;
+			for (int i = 0; i < count; i++) {
+				if (lits[i] == (lit ^ 1)) return;
+				if (lits[i] == lit) duplicate = true;
+			}
+			if (!duplicate) lits[count++] = lit;
+		}
+		if (count == 0) {
+			unsatisfiable = true;
+		} else if (count == 1) {
+			assign(lits[0], -1);
+			if (propagate() >= 0) unsatisfiable = true;
+		} else {
+			attach(Arrays.copyOf(lits, count));
+		}
+	}
+
+	/**
+	 * Searches for values of every variable that satisfy every clause
+	 * @return True if a solution was found, after which model gives the values, or false if there is none
+	 * @throws CancellationException if the thread is interrupted
+	 */
+	boolean solve() {
+		if (unsatisfiable) return false;
+		if (propagate() >= 0) {
+			unsatisfiable = true;
+			return false;
+		}
+		for (int restart = 1; ; restart++) {
+			int result = search(RESTART_BASE * luby(restart));
+			if (result != 0) {
+				if (result > 0) {
+					for (int v = 1; v <= vars; v++) model[v] = value[v] > 0;
+				} else {
+					unsatisfiable = true;
+				}
+				backtrack(0);
+				return result > 0;
+			}
+		}
+	}
+
+	/**
+	 * Gets the value of a literal in the last solution found
+	 * @param literal - A variable or its negation
+	 * @return True if the literal was satisfied
+	 */
+	boolean model(int literal) {
+		return model[Math.abs(literal)] == literal > 0;
+	}
+
+	/**
+	 * Gets the number of variables
+	 */
+	int vars() {
+		return vars;
+	}
+
+	/**
+	 * Gets the number of clauses of two or more literals, including learned clauses
+	 */
+	int clauses() {
+		return clauses.size();
+	}
+
+	/**
+	 * Gets the number of conflicts over every call to solve
+	 */
+	long conflicts() {
+		return conflicts;
+	}
+
+	//========== Private Methods ==========//
+
+	/**
+	 * Searches until a solution is found, the clauses are shown to have no solution, or a number of conflicts
+	 * @return 1 if satisfied, -1 if unsatisfiable, or 0 to restart
+	 */
+	private int search(long limit) {
+		for (long count = 0; ; ) {
+			int conflict = propagate();
+			if (conflict >= 0) {
+				conflicts++;
+				count++;
+				if (decisions == 0) return -1;
+				if ((conflicts & 255) == 0 && Thread.currentThread().isInterrupted()) {
+					backtrack(0);
+					throw new CancellationException("SAT search was interrupted");
+				}
+				learn(conflict);
+				bump /= DECAY;
+			} else {
+				if (count >= limit) {
+					backtrack(0);
+					return 0;
+				}
+				int v = nextVariable();
+				if (v == 0) return 1;
+				if (decisions + 1 >= levelStart.length) levelStart = Arrays.copyOf(levelStart, levelStart.length * 2);
+				levelStart[++decisions] = trailSize;
+				assign(2 * v + (phase[v] ? 0 : 1), -1);
+			}
+		}
+	}
+
+	/**
+	 * Propagates every literal assigned since the last call
+	 * @return The index of a clause with every literal false, or -1 if there is no conflict
+	 */
+	private int propagate() {
+		while (propagated < trailSize) {
+			int falseLit = trail[propagated++] ^ 1;
+			int[] list = watches[falseLit];
+			int n = watchCount[falseLit];
+			int kept = 0;
+			int i = 0;
+			while (i < n) {
+				int ci = list[i++];
+				int[] clause = clauses.get(ci);
+				if (clause[0] == falseLit) {
+					clause[0] = clause[1];
+					clause[1] = falseLit;
+				}
+				if (valueOf(clause[0]) > 0) {
+					list[kept++] = ci;
+					continue;
+				}
+				boolean moved = false;
+				for (int k = 2; k < clause.length; k++) {
+					if (valueOf(clause[k]) >= 0) {
+						clause[1] = clause[k];
+						clause[k] = falseLit;
+						watch(clause[1], ci);
+						moved = true;
+						break;
+					}
+				}
+				if (moved) continue;
+				list[kept++] = ci;
+				if (valueOf(clause[0]) < 0) {
+					while (i < n) list[kept++] = list[i++];
+					watchCount[falseLit] = kept;
+					return ci;
+				}
+				assign(clause[0], ci);
+			}
+			watchCount[falseLit] = kept;
+		}
+		return -1;
+	}
+
+	/**
+	 * Learns a clause from a conflict by resolving back to the first unique implication point, then jumps back to the
+	 * level where the learned clause implies the negation of that point
+	 */
+	private void learn(int conflict) {
+		int[] learned = new int[8];
+		int size = 1;
+		int pending = 0;
+		int lit = -1;
+		int idx = trailSize - 1;
+		int ci = conflict;
+		do {
+			int[] clause = clauses.get(ci);
+			for (int j = lit < 0 ? 0 : 1; j < clause.length; j++) {
+				int v = clause[j] >> 1;
+				if (seen[v] || level[v] == 0) continue;
+				seen[v] = true;
+				bumpActivity(v);
+				if (level[v] >= decisions) {
+					pending++;
+				} else {
+					if (size == learned.length) learned = Arrays.copyOf(learned, size * 2);
+					learned[size++] = clause[j];
+				}
+			}
+			while (!seen[trail[idx] >> 1]) idx--;
+			lit = trail[idx--];
+			ci = reason[lit >> 1];
+			seen[lit >> 1] = false;
+			pending--;
+		} while (pending > 0);
+		learned[0] = lit ^ 1;
+		int back = 0;
+		for (int i = 1; i < size; i++) {
+			int v = learned[i] >> 1;
+			seen[v] = false;
+			if (level[v] > back) {
+				back = level[v];
+				int swap = learned[1];
+				learned[1] = learned[i];
+				learned[i] = swap;
+			}
+		}
+		backtrack(back);
+		if (size == 1) {
+			assign(learned[0], -1);
+		} else {
+			assign(learned[0], attach(Arrays.copyOf(learned, size)));
+		}
+	}
+
+	private int attach(int[] clause) {
+		int ci = clauses.size();
+		clauses.add(clause);
+		watch(clause[0], ci);
+		watch(clause[1], ci);
+		return ci;
+	}
+
+	private void watch(int lit, int ci) {
+		if (watchCount[lit] == watches[lit].length) watches[lit] = Arrays.copyOf(watches[lit], watchCount[lit] * 2);
+		watches[lit][watchCount[lit]++] = ci;
+	}
+
+	private void assign(int lit, int why) {
+		int v = lit >> 1;
+		value[v] = (byte) ((lit & 1) == 0 ? 1 : -1);
+		level[v] = decisions;
+		reason[v] = why;
+		if (trailSize == trail.length) trail = Arrays.copyOf(trail, trailSize * 2);
+		trail[trailSize++] = lit;
+	}
+
+	/**
+	 * Unassigns every variable above a decision level, remembering its value for the next decision on it
+	 */
+	private void backtrack(int target) {
+		if (decisions <= target) return;
+		for (int i = trailSize - 1; i >= levelStart[target + 1]; i--) {
+			int v = trail[i] >> 1;
+			phase[v] = value[v] > 0;
+			value[v] = 0;
+			insert(v);
+		}
+		trailSize = levelStart[target + 1];
+		propagated = trailSize;
+		decisions = target;
+	}
+
+	/**
+	 * Takes the most active unassigned variable from the heap
+	 * @return The variable, or 0 if every variable is assigned
+	 */
+	private int nextVariable() {
+		while (heapSize > 0) {
+			int v = heap[0];
+			heapIndex[v] = -1;
+			heap[0] = heap[--heapSize];
+			if (heapSize > 0) {
+				heapIndex[heap[0]] = 0;
+				siftDown(0);
+			}
+			if (value[v] == 0) return v;
+		}
+		return 0;
+	}
+
+	private void bumpActivity(int v) {
+		activity[v] += bump;
+		if (activity[v] > 1e100) {
+			for (int i = 1; i <= vars; i++) activity[i] *= 1e-100;
+			bump *= 1e-100;
+		}
+		if (heapIndex[v] >= 0) siftUp(heapIndex[v]);
+	}
+
+	private void insert(int v) {
+		if (heapIndex[v] >= 0) return;
+		if (heapSize == heap.length) heap = Arrays.copyOf(heap, heapSize * 2);
+		heap[heapSize] = v;
+		heapIndex[v] = heapSize++;
+		siftUp(heapIndex[v]);
+	}
+
+	private void siftUp(int i) {
+		int v = heap[i];
+		while (i > 0 && activity[heap[(i - 1) / 2]] < activity[v]) {
+			heap[i] = heap[(i - 1) / 2];
+			heapIndex[heap[i]] = i;
+			i = (i - 1) / 2;
+		}
+		heap[i] = v;
+		heapIndex[v] = i;
+	}
+
+	private void siftDown(int i) {
+		int v = heap[i];
+		while (2 * i + 1 < heapSize) {
+			int child = 2 * i + 1;
+			if (child + 1 < heapSize && activity[heap[child + 1]] > activity[heap[child]]) child++;
+			if (activity[heap[child]] <= activity[v]) break;
+			heap[i] = heap[child];
+			heapIndex[heap[i]] = i;
+			i = child;
+		}
+		heap[i] = v;
+		heapIndex[v] = i;
+	}
+
+	/**
+	 * Converts a DIMACS literal to the internal form, where variable v is 2v and its negation is 2v + 1
+	 */
+	private int internal(int literal) {
+		int v = Math.abs(literal);
+		if (v == 0 || v > vars) throw new IllegalArgumentException("Unknown variable: " + literal);
+		return 2 * v + (literal > 0 ? 0 : 1);
+	}
+
+	/**
+	 * Gets the value of an internal literal
+	 * @return 1 if true, -1 if false, or 0 if unassigned
+	 */
+	private int valueOf(int lit) {
+		int v = value[lit >> 1];
+		return (lit & 1) == 0 ? v : -v;
+	}
+
+	private void grow(int capacity) {
+		value = Arrays.copyOf(value, capacity);
+		level = Arrays.copyOf(level, capacity);
+		reason = Arrays.copyOf(reason, capacity);
+		phase = Arrays.copyOf(phase, capacity);
+		seen = Arrays.copyOf(seen, capacity);
+		activity = Arrays.copyOf(activity, capacity);
+		heapIndex = Arrays.copyOf(heapIndex, capacity);
+		model = Arrays.copyOf(model, capacity);
+		int oldLits = watches.length;
+		watches = Arrays.copyOf(watches, capacity * 2);
+		watchCount = Arrays.copyOf(watchCount, capacity * 2);
+		for (int i = oldLits; i < watches.length; i++) watches[i] = new int[4];
+	}
+
+	/**
+	 * Gets the ith term of the Luby sequence 1, 1, 2, 1, 1, 2, 4, 1, ...
+	 */
+	private static int luby(int i) {
+		int x = i - 1;
+		int size = 1;
+		int power = 0;
+		while (size < x + 1) {
+			size = 2 * size + 1;
+			power++;
+		}
+		while (size - 1 != x) {
+			size = (size - 1) / 2;
+			power--;
+			x %= size;
+		}
+		return 1 << power;
+	}
+}
@@ -0,0 +1,297 @@
+import Exceptions.InvalidBoardException;
+import Exceptions.InvalidMoveException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The Server class exposes the solver as a local HTTP/JSON service using the JDK's built in HTTP server.
+ *
+ * POST /solve with a puzzle in the body, in the format of Puzzles.txt or Board.toString. The optional query parameters
+ * are log=true to include the log of actions taken, rate=false to return only the answer without a difficulty level,
+ * engine=sat to find that answer with SatBackend, and deadline=millis to shorten the deadline for the request. A puzzle
+ * that Validator finds cannot have a solution is rejected with 400 without being solved.
+ * POST /check with a solved puzzle in the body, in the format of Board.toString, returns whether it is a correct
+ * solution to its own sums and fleet.
+ * GET /health returns the number of requests in flight, completed, rejected and timed out.
+ *
+ * Connections are handled on virtual threads when the JVM supports them. Parsing, validating and solving happen on a
+ * fixed pool of workers with a bounded queue, and a request is rejected with 503 when the queue is full or with 504 when
+ * its deadline passes. A deadline below 1 millisecond is rejected with 400.
+ *
+ * Usage: java Server [port] [workers] [queue] [deadline millis]
+ */
+public class Server {
+
+	//========== State ==========//
+
+	private static final int MAX_BODY = 64 * 1024;	// The largest puzzle accepted, in bytes
+
+	private final HttpServer http;					// The underlying HTTP server
+	private final ExecutorService handlers;			// Runs one task per connection, waiting on the solve pool
+	private final ThreadPoolExecutor pool;			// Runs the solver, bounded by worker count and queue size
+	private final long deadline;					// The longest a request may take, in milliseconds
+	private final AtomicLong completed = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+	private final AtomicLong timedOut = new AtomicLong();
+
+	//========== Constructor ==========//
+
+	/**
+	 * Creates a server that is not yet accepting connections
+	 * @param port - The local port to listen on, or 0 for any free port
+	 * @param workers - The number of puzzles that may be solved at once
+	 * @param queue - The number of puzzles that may wait for a worker before requests are rejected
+	 * @param deadline - The longest a request may take, in milliseconds
+	 * @throws IllegalArgumentException if the deadline is less than 1 millisecond
+	 * @throws IOException if the port cannot be bound
+	 */
+	Server(int port, int workers, int queue, long deadline) throws IOException {
+		if (deadline < 1) throw new IllegalArgumentException("The deadline must be at least 1 millisecond");
+		this.deadline = deadline;
+		this.handlers = newHandlerExecutor();
+		this.pool = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queue));
+		this.http = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+		http.setExecutor(handlers);
+		http.createContext("/solve", this::handleSolve);
+		http.createContext("/check", this::handleCheck);
+		http.createContext("/health", this::handleHealth);
+	}
+
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+		int workers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		int queue = args.length > 2 ? Integer.parseInt(args[2]) : workers * 4;
+		long deadline = args.length > 3 ? Long.parseLong(args[3]) : 2000;
+		Server server = new Server(port, workers, queue, deadline);
+		server.start();
+		System.out.println("Listening on http://127.0.0.1:" + server.port() + " with " + workers + " workers");
+	}
+
+	//========== Methods ==========//
+
+	void start() {
+		http.start();
+	}
+
+	void stop() {
+		http.stop(0);
+		pool.shutdownNow();
+		handlers.shutdownNow();
+	}
+
+	int port() {
+		return http.getAddress().getPort();
+	}
+
+	//========== Handlers ==========//
+
+	private void handleSolve(HttpExchange exchange) throws IOException {
+		try {
+			if (!exchange.getRequestMethod().equals("POST")) {
+				send(exchange, 405, SolveResult.error(null, "Use POST").toJson());
+				return;
+			}
+			String body = readBody(exchange.getRequestBody());
+			if (body == null) {
+				send(exchange, 413, SolveResult.error(null, "Puzzle is larger than " + MAX_BODY + " bytes").toJson());
+				return;
+			}
+			String query = exchange.getRequestURI().getQuery();
+			boolean withLog = "true".equals(param(query, "log"));
+			boolean rate = !"false".equals(param(query, "rate"));
+			boolean sat = "sat".equals(param(query, "engine"));
+			long limit = deadline;
+			if (param(query, "deadline") != null) {
+				long requested = Long.parseLong(param(query, "deadline"));
+				if (requested < 1) {
+					send(exchange, 400, SolveResult.error(null, "Invalid deadline").toJson());
+					return;
+				}
+				limit = Math.min(limit, requested);
+			}
+			respond(exchange, () -> solve(body, withLog, rate, sat), limit);
+		} catch (NumberFormatException e) {
+			send(exchange, 400, SolveResult.error(null, "Invalid deadline").toJson());
+		} catch (RuntimeException e) {
+			send(exchange, 500, SolveResult.error(null, e.toString()).toJson());
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private void handleCheck(HttpExchange exchange) throws IOException {
+		try {
+			if (!exchange.getRequestMethod().equals("POST")) {
+				send(exchange, 405, SolveResult.error(null, "Use POST").toJson());
+				return;
+			}
+			String body = readBody(exchange.getRequestBody());
+			if (body == null) {
+				send(exchange, 413, SolveResult.error(null, "Puzzle is larger than " + MAX_BODY + " bytes").toJson());
+				return;
+			}
+			respond(exchange, () -> check(body), deadline);
+		} catch (RuntimeException e) {
+			send(exchange, 500, SolveResult.error(null, e.toString()).toJson());
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private void handleHealth(HttpExchange exchange) throws IOException {
+		try {
+			send(exchange, 200, "{\"active\":" + pool.getActiveCount() + ",\"queued\":" + pool.getQueue().size()
+					+ ",\"completed\":" + completed.get() + ",\"rejected\":" + rejected.get()
+					+ ",\"timedOut\":" + timedOut.get() + "}");
+		} finally {
+			exchange.close();
+		}
+	}
+
+	//========== Private Methods ==========//
+
+	/**
+	 * A response worked out by a worker
+	 */
+	private static class Reply {
+		final int status;
+		final String json;
+
+		Reply(int status, String json) {
+			this.status = status;
+			this.json = json;
+		}
+	}
+
+	/**
+	 * Runs a request on the solve pool and sends its reply, so parsing and validating a body are bounded by the worker
+	 * count and queue size just like solving
+	 * @param exchange - The request
+	 * @param task - Works out the reply
+	 * @param limit - The longest to wait for the reply, in milliseconds
+	 */
+	private void respond(HttpExchange exchange, Callable<Reply> task, long limit) throws IOException {
+		Future<Reply> future;
+		try {
+			future = pool.submit(task);
+		} catch (RejectedExecutionException e) {
+			rejected.incrementAndGet();
+			exchange.getResponseHeaders().set("Retry-After", "1");
+			send(exchange, 503, SolveResult.error(null, "Server is busy").toJson());
+			return;
+		}
+		try {
+			Reply reply = future.get(limit, TimeUnit.MILLISECONDS);
+			completed.incrementAndGet();
+			send(exchange, reply.status, reply.json);
+		} catch (TimeoutException e) {
+			future.cancel(true);
+			timedOut.incrementAndGet();
+			send(exchange, 504, SolveResult.error(null, "Deadline of " + limit + "ms exceeded").toJson());
+		} catch (ExecutionException e) {
+			send(exchange, 500, SolveResult.error(null, String.valueOf(e.getCause())).toJson());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			send(exchange, 503, SolveResult.error(null, "Server is stopping").toJson());
+		}
+	}
+
+	/**
+	 * Parses, validates and solves a puzzle
+	 * @return 200 with the result, 422 if the solver failed, or 400 if the puzzle is malformed or cannot be solved
+	 */
+	private static Reply solve(String body, boolean withLog, boolean rate, boolean sat) {
+		Board board;
+		try {
+			board = Reader.parse("Request", body);
+			Validator.validate(board);
+		} catch (IllegalArgumentException | InvalidMoveException | InvalidBoardException e) {
+			return new Reply(400, SolveResult.error(null, e.getMessage()).toJson());
+		} catch (RuntimeException e) {
+			return new Reply(400, SolveResult.error(null, "Malformed puzzle: " + e).toJson());
+		}
+		SolveResult result = SolveResult.solve(board, withLog, rate, sat);
+		return new Reply(result.error == null ? 200 : 422, result.toJson());
+	}
+
+	/**
+	 * Parses a solved puzzle and checks it against its own sums and fleet
+	 * @return 200 if it is a correct solution, 422 if it is not, or 400 if the puzzle is malformed
+	 */
+	private static Reply check(String body) {
+		Board board;
+		try {
+			board = Reader.parse("Request", body);
+		} catch (IllegalArgumentException | InvalidMoveException e) {
+			return new Reply(400, SolveResult.error(null, e.getMessage()).toJson());
+		} catch (RuntimeException e) {
+			return new Reply(400, SolveResult.error(null, "Malformed puzzle: " + e).toJson());
+		}
+		try {
+			Validator.checkSolution(board);
+			return new Reply(200, "{\"name\":" + SolveResult.quote(board.NAME) + ",\"valid\":true}");
+		} catch (InvalidBoardException e) {
+			return new Reply(422, "{\"name\":" + SolveResult.quote(board.NAME) + ",\"valid\":false,\"error\":"
+					+ SolveResult.quote(e.getMessage()) + "}");
+		}
+	}
+
+	private static void send(HttpExchange exchange, int status, String json) throws IOException {
+		byte[] bytes = (json + "\n").getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	/**
+	 * Reads a request body
+	 * @return The body as a string, or null if it is larger than MAX_BODY
+	 */
+	private static String readBody(InputStream in) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int n;
+		while ((n = in.read(buffer)) > 0) {
+			body.write(buffer, 0, n);
+			if (body.size() > MAX_BODY) return null;
+		}
+		return body.toString("UTF-8");
+	}
+
+	/**
+	 * Gets the value of a query parameter
+	 * @return The value, or null if the parameter is not present
+	 */
+	private static String param(String query, String name) {
+		if (query == null) return null;
+		for (String pair : query.split("&")) {
+			int eq = pair.indexOf('=');
+			if (eq > 0 && pair.substring(0, eq).equals(name)) return pair.substring(eq + 1);
+		}
+		return null;
+	}
+
+	/**
+	 * Creates an executor that starts a virtual thread per task. Virtual threads need Java 21, so on older JVMs this
+	 * falls back to a cached pool of platform threads
+	 * @return An executor for connection handlers
+	 */
+	private static ExecutorService newHandlerExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool();
+		}
+	}
+}
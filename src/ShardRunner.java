@@ -0,0 +1,338 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * The ShardRunner class solves a large corpus across several worker JVMs on one host, so no single heap holds every
+ * puzzle and a GC pause or crash only holds up one shard. The corpus is split into shards of a fixed number of puzzles,
+ * and each worker runs "Main --batch" over one shard at a time, writing its JSON lines to a file the coordinator reads
+ * as they appear.
+ *
+ * A worker that exits early or makes no progress for the stall time is stopped, and the puzzles it had not finished
+ * go back on the queue, split in two so that idle workers can share them. A puzzle that stops a worker MAX_ATTEMPTS
+ * times without any progress is recorded as an error and skipped. Once every puzzle has a result, the results are
+ * written in corpus order with puzzles named by their position in the whole corpus, followed by totals on stderr.
+ *
+ * Workers are started by a Launcher, so running them on other hosts only needs a Launcher that starts the same
+ * command remotely and copies the shard files.
+ *
+ * Usage: java ShardRunner corpus [--workers N] [--shard N] [--stall seconds] [--heap size] [--out file] [batch args]
+ * Any other arguments, such as --fast or --log, are passed to each worker's batch run.
+ */
+public class ShardRunner {
+
+	//========== State ==========//
+
+	private static final int MAX_ATTEMPTS = 3;		// Failures without progress before a puzzle is skipped
+	private static final long POLL_MILLIS = 50;		// How often workers are checked for new results
+	private static final Pattern NAME = Pattern.compile("^\\{\"name\":\"#(\\d+)\"");
+	private static final Pattern LEVEL = Pattern.compile("\"level\":(\\d+)");
+	private static final Pattern MILLIS = Pattern.compile("\"millis\":([0-9.]+)");
+
+	/**
+	 * Starts a worker that solves the puzzles in one file and writes a JSON line for each to another
+	 */
+	interface Launcher {
+		Process start(Path input, Path output) throws IOException;
+	}
+
+	/**
+	 * A run of consecutive puzzles from the corpus, between start (inclusive) and end (exclusive)
+	 */
+	private static class Shard {
+		final int start;
+		final int end;
+		final int attempts;		// The number of times a worker failed on this shard's first puzzle
+
+		Shard(int start, int end, int attempts) {
+			this.start = start;
+			this.end = end;
+			this.attempts = attempts;
+		}
+	}
+
+	/**
+	 * A worker slot, and the shard it is running if any
+	 */
+	private static class Worker {
+		Shard shard;
+		Process process;
+		Path input;
+		Path output;
+		int done;				// The number of results read from the output so far
+		long lastProgress;		// When the last result was read
+	}
+
+	private final ArrayList<String> puzzles;	// The text of every puzzle in the corpus
+	private final String[] results;				// The JSON line of each puzzle, or null until finished
+	private final Launcher launcher;
+	private final Worker[] workers;
+	private final int shardSize;				// The number of puzzles in each shard at the start
+	private final long stallNanos;				// How long a worker may go without a result before it is stopped
+	private final ArrayDeque<Shard> queue = new ArrayDeque<>();
+	private final Path dir;						// Where shard files are written
+	private int finished;						// The number of puzzles with a result
+	private int restarts;						// The number of workers stopped or failed before finishing a shard
+
+	//========== Constructor ==========//
+
+	/**
+	 * Creates a runner for a corpus
+	 * @param puzzles - The text of every puzzle, in corpus order
+	 * @param launcher - Starts each worker
+	 * @param workers - The number of workers run at once
+	 * @param shardSize - The number of puzzles in each shard
+	 * @param stallSeconds - How long a worker may go without finishing a puzzle before it is stopped
+	 * @throws IOException if the directory for shard files cannot be created
+	 */
+	ShardRunner(ArrayList<String> puzzles, Launcher launcher, int workers, int shardSize, double stallSeconds) throws IOException {
+		this.puzzles = puzzles;
+		this.results = new String[puzzles.size()];
+		this.launcher = launcher;
+		this.workers = new Worker[workers];
+		for (int i = 0; i < workers; i++) this.workers[i] = new Worker();
+		this.shardSize = shardSize;
+		this.stallNanos = (long) (stallSeconds * 1e9);
+		this.dir = Files.createTempDirectory("shards");
+	}
+
+	//========== Main ==========//
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		String corpus = null;
+		String out = null;
+		String heap = null;
+		int workers = Runtime.getRuntime().availableProcessors();
+		int shardSize = 100;
+		double stall = 60;
+		ArrayList<String> batchArgs = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "--workers": workers = Integer.parseInt(args[++i]); break;
+				case "--shard": shardSize = Integer.parseInt(args[++i]); break;
+				case "--stall": stall = Double.parseDouble(args[++i]); break;
+				case "--heap": heap = args[++i]; break;
+				case "--out": out = args[++i]; break;
+				default:
+					if (corpus == null && !args[i].startsWith("--")) corpus = args[i];
+					else batchArgs.add(args[i]);
+			}
+		}
+		if (corpus == null) corpus = Reader.PUZZLE_FILE;
+
+		ArrayList<String> puzzles = new ArrayList<>();
+		try (BufferedReader in = new BufferedReader(new FileReader(corpus))) {
+			String text;
+			while ((text = Reader.nextPuzzle(in)) != null) puzzles.add(text);
+		}
+		ShardRunner runner = new ShardRunner(puzzles, localLauncher(heap, batchArgs), workers, shardSize, stall);
+		long start = System.nanoTime();
+		runner.run();
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		try (PrintStream stream = out == null ? null : new PrintStream(new FileOutputStream(out), false, "UTF-8")) {
+			runner.write(stream == null ? System.out : stream);
+		}
+		runner.printTotals(System.err, seconds);
+	}
+
+	//========== Methods ==========//
+
+	/**
+	 * Starts workers with the same Java runtime and class path as this JVM, each running "Main --batch" on one thread
+	 * @param heap - The maximum heap of each worker, such as "512m", or null for the default
+	 * @param batchArgs - Extra arguments for the batch run
+	 * @return A Launcher for the local host
+	 */
+	static Launcher localLauncher(String heap, ArrayList<String> batchArgs) {
+		String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+		String classPath = System.getProperty("java.class.path");
+		return (input, output) -> {
+			ArrayList<String> command = new ArrayList<>(Arrays.asList(java, "-cp", classPath));
+			if (heap != null) command.add("-Xmx" + heap);
+			command.addAll(Arrays.asList("Main", "--batch", input.toString(), "--workers", "1"));
+			command.addAll(batchArgs);
+			return new ProcessBuilder(command)
+					.redirectOutput(output.toFile())
+					.redirectError(ProcessBuilder.Redirect.INHERIT)
+					.start();
+		};
+	}
+
+	/**
+	 * Solves every puzzle, returning once each has a result
+	 * @throws IOException if a shard file cannot be written or read
+	 * @throws InterruptedException if interrupted while waiting for workers
+	 */
+	void run() throws IOException, InterruptedException {
+		for (int start = 0; start < puzzles.size(); start += shardSize) {
+			queue.add(new Shard(start, Math.min(start + shardSize, puzzles.size()), 0));
+		}
+		try {
+			while (finished < puzzles.size()) {
+				for (Worker worker : workers) {
+					if (worker.shard == null && !queue.isEmpty()) launch(worker, queue.poll());
+				}
+				Thread.sleep(POLL_MILLIS);
+				for (Worker worker : workers) {
+					if (worker.shard != null) check(worker);
+				}
+			}
+		} finally {
+			for (Worker worker : workers) {
+				if (worker.process != null) worker.process.destroyForcibly();
+			}
+			try (Stream<Path> files = Files.walk(dir)) {
+				files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+			}
+		}
+	}
+
+	/**
+	 * Writes the result of every puzzle in corpus order
+	 * @param out - Where to write one JSON line per puzzle
+	 */
+	void write(PrintStream out) {
+		for (String result : results) out.println(result);
+		out.flush();
+	}
+
+	/**
+	 * Writes the number of puzzles solved, failed and at each level, and the time taken
+	 * @param out - Where to write the totals
+	 * @param seconds - The wall clock time of the run
+	 */
+	void printTotals(PrintStream out, double seconds) {
+		int solved = 0;
+		int errors = 0;
+		double millis = 0;
+		int[] levels = new int[Solver.STRATEGIES.length + 2];
+		for (String result : results) {
+			if (result.contains("\"solved\":true")) solved++;
+			if (result.contains("\"error\":")) errors++;
+			Matcher level = LEVEL.matcher(result);
+			if (level.find()) levels[Math.min(Integer.parseInt(level.group(1)), levels.length - 1)]++;
+			Matcher time = MILLIS.matcher(result);
+			if (time.find()) millis += Double.parseDouble(time.group(1));
+		}
+		out.printf(Locale.ROOT, "%d puzzles in %.2f s over %d workers: %d solved, %d errors, %d restarts%n",
+				results.length, seconds, workers.length, solved, errors, restarts);
+		out.printf(Locale.ROOT, "Solve time %.1f ms in total, %.3f ms per puzzle%n", millis, millis / Math.max(results.length, 1));
+		StringBuilder histogram = new StringBuilder("Levels:");
+		for (int i = 0; i < levels.length; i++) {
+			if (levels[i] > 0) histogram.append(' ').append(i).append('=').append(levels[i]);
+		}
+		out.println(histogram);
+	}
+
+	//========== Private Methods ==========//
+
+	/**
+	 * Writes a shard's puzzles to a file and starts a worker on it
+	 */
+	private void launch(Worker worker, Shard shard) throws IOException {
+		worker.shard = shard;
+		worker.input = dir.resolve("shard-" + shard.start + "-" + shard.end + ".txt");
+		worker.output = dir.resolve("shard-" + shard.start + "-" + shard.end + ".json");
+		try (Writer writer = Files.newBufferedWriter(worker.input, StandardCharsets.UTF_8)) {
+			for (int i = shard.start; i < shard.end; i++) writer.write(puzzles.get(i) + "\n");
+		}
+		worker.done = 0;
+		worker.lastProgress = System.nanoTime();
+		worker.process = launcher.start(worker.input, worker.output);
+	}
+
+	/**
+	 * Reads any new results from a worker, and puts its unfinished puzzles back on the queue if it has exited or
+	 * stalled
+	 */
+	private void check(Worker worker) throws IOException {
+		boolean alive = worker.process.isAlive();
+		int done = collect(worker);
+		if (done > worker.done) {
+			worker.done = done;
+			worker.lastProgress = System.nanoTime();
+		}
+		Shard shard = worker.shard;
+		int remaining = shard.start + worker.done;
+		if (remaining == shard.end) {
+			release(worker);
+			return;
+		}
+		if (alive && System.nanoTime() - worker.lastProgress < stallNanos) return;
+
+		// The worker died or stalled before finishing its shard
+		worker.process.destroyForcibly();
+		restarts++;
+		release(worker);
+		int attempts = worker.done == 0 ? shard.attempts + 1 : 1;
+		if (attempts >= MAX_ATTEMPTS) {
+			String name = nameOf(remaining);
+			results[remaining] = SolveResult.error(name, "Worker failed " + attempts + " times on " + name).toJson();
+			finished++;
+			remaining++;
+			attempts = 0;
+		}
+		if (remaining == shard.end) return;
+		if (shard.end - remaining > 1 && queue.isEmpty()) {
+			// Split the rest so that an idle worker can share it
+			int middle = (remaining + shard.end + 1) / 2;
+			queue.addFirst(new Shard(middle, shard.end, 0));
+			queue.addFirst(new Shard(remaining, middle, attempts));
+		} else {
+			queue.addFirst(new Shard(remaining, shard.end, attempts));
+		}
+	}
+
+	/**
+	 * Reads every complete line a worker has written, storing each result under its position in the corpus
+	 * @return The number of complete lines in the worker's output
+	 */
+	private int collect(Worker worker) throws IOException {
+		byte[] bytes = Files.readAllBytes(worker.output);
+		int end = bytes.length;
+		while (end > 0 && bytes[end - 1] != '\n') end--;
+		String[] lines = new String(bytes, 0, end, StandardCharsets.UTF_8).split("\n");
+		int count = end == 0 ? 0 : lines.length;
+		for (int i = worker.done; i < count; i++) {
+			int idx = worker.shard.start + i;
+			results[idx] = renumber(lines[i], idx);
+			finished++;
+		}
+		return count;
+	}
+
+	private void release(Worker worker) {
+		worker.shard = null;
+		worker.process = null;
+		worker.input.toFile().delete();
+		worker.output.toFile().delete();
+	}
+
+	/**
+	 * Replaces the name a worker gave a puzzle with no identifier line, which counts from the start of its shard, with
+	 * one that counts from the start of the corpus
+	 */
+	private static String renumber(String result, int idx) {
+		Matcher name = NAME.matcher(result);
+		return name.find() ? "{\"name\":\"#" + (idx + 1) + "\"" + result.substring(name.end()) : result;
+	}
+
+	/**
+	 * Gets the name Batch would give a puzzle, from its identifier line or its position in the corpus
+	 */
+	private String nameOf(int idx) {
+		String first = puzzles.get(idx).split("\n", 2)[0].trim();
+		return first.matches("\\d+\\)") ? "Puzzle " + first.substring(0, first.length() - 1) : "#" + (idx + 1);
+	}
+}
@@ -5,6 +5,7 @@ import Exceptions.InvalidMoveException;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -26,6 +27,8 @@ class Ship implements Serializable {
 	final private Board board;					// The parent instance of Board to which this Ship belongs
 	final private ArrayList<Tile> tileList;		// An array list of Tiles that compose this Ship
 	private ArrayList<Tile> waterTileList;		// An array list of Tiles around this Ship that must be water
+	private transient BitSet mask;				// Cached footprint of this Ship as a set of tile indexes
+	private transient BitSet haloMask;			// Cached set of tile indexes surrounding this Ship
 
 	//========== Constructors ==========//
 
@@ -68,7 +71,7 @@ class Ship implements Serializable {
 	 * Gets the northern-most or western-most Tile occupied by this Ship
 	 * @return An instance of Tile
 	 */
-	private Tile start() {
+	Tile start() {
 		return tileList.get(0);
 	}
 
@@ -76,7 +79,7 @@ class Ship implements Serializable {
 	 * Gets the southern-most or eastern-most Tile occupied by this Ship
 	 * @return An instance of Tile
 	 */
-	private Tile end() {
+	Tile end() {
 		return tileList.get(tileList.size() - 1);
 	}
 
@@ -106,6 +109,41 @@ class Ship implements Serializable {
 		return tileList;
 	}
 
+	/**
+	 * Gets the footprint of this Ship as a set of tile indexes (see Tile.index). The returned BitSet is shared and must
+	 * not be modified
+	 * @return A BitSet with one bit set for each Tile occupied by this Ship
+	 */
+	BitSet mask() {
+		if (mask == null) {
+			mask = new BitSet(board.SIZE * board.SIZE);
+			for (Tile tile : tileList) {
+				mask.set(tile.index());
+			}
+		}
+		return mask;
+	}
+
+	/**
+	 * Gets the tiles surrounding this Ship, including diagonals, as a set of tile indexes. If this Ship exists, every
+	 * one of these tiles must be water. The returned BitSet is shared and must not be modified
+	 * @return A BitSet with one bit set for each in-bounds Tile touching this Ship
+	 */
+	BitSet haloMask() {
+		if (haloMask == null) {
+			haloMask = new BitSet(board.SIZE * board.SIZE);
+			int r1 = Math.max(start().ROW - 1, 0);
+			int c1 = Math.max(start().COL - 1, 0);
+			int r2 = Math.min(end().ROW + 1, board.SIZE - 1);
+			int c2 = Math.min(end().COL + 1, board.SIZE - 1);
+			for (int row = r1; row <= r2; row++) {
+				haloMask.set(row * board.SIZE + c1, row * board.SIZE + c2 + 1);
+			}
+			haloMask.andNot(mask());
+		}
+		return haloMask;
+	}
+
 	/**
 	 * Checks whether or not the Ship is completely identified
 	 * @return True if every Tile occupied by this Ship is identified, otherwise false
@@ -196,23 +234,18 @@ class Ship implements Serializable {
 	 * @throws InvalidMoveException - If changing the value of the tiles causes the board to become invalid
 	 */
 	void confirm() throws InvalidMoveException {
+		Tile.Worklist worklist = board.worklist();
 		if (size() == 1) {
-			start().setValue(Value.SHIP_SUB);
+			worklist.push(start(), Value.SHIP_SUB);
 		} else {
-			if (lane() == Lane.ROW) {
-				start().setValue(Value.SHIP_WEST);
-				end().setValue(Value.SHIP_EAST);
-				for (int i = 1; i < size() - 1; i++) {
-					tileList.get(i).setValue(Value.SHIP_MID_H);
-				}
-			} else {
-				start().setValue(Value.SHIP_NORTH);
-				end().setValue(Value.SHIP_SOUTH);
-				for (int i = 1; i < size() - 1; i++) {
-					tileList.get(i).setValue(Value.SHIP_MID_V);
-				}
+			boolean row = lane() == Lane.ROW;
+			worklist.push(start(), row ? Value.SHIP_WEST : Value.SHIP_NORTH);
+			worklist.push(end(), row ? Value.SHIP_EAST : Value.SHIP_SOUTH);
+			for (int i = 1; i < size() - 1; i++) {
+				worklist.push(tileList.get(i), row ? Value.SHIP_MID_H : Value.SHIP_MID_V);
 			}
 		}
+		worklist.run();
 	}
 
 	//========== Override ==========//
@@ -225,6 +258,10 @@ class Ship implements Serializable {
 		return this.size() == other.size() && this.start().ROW == other.start().ROW && this.start().COL == other.start().COL && this.lane() == other.lane();
 	}
 
+	public int hashCode() {
+		return ((start().ROW * 31 + start().COL) * 31 + size()) * 3 + (lane() == null ? 0 : lane().ordinal() + 1);
+	}
+
 	//========== Unused ==========//
 
 	public ArrayList<Tile> waterTiles() {
@@ -0,0 +1,473 @@
+import Enums.Lane;
+import Enums.Value;
+import Exceptions.PuzzleException;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * The SlicedBoards class runs the easiest strategies, FillLanes and IdentifyTiles, on up to 64 boards of the same size
+ * at once. The boards are stored bit-sliced: for every tile and every value there is one long, and bit b of that long
+ * is set when board b has that value at that tile. Each rule is then a handful of word-wide operations that apply to
+ * all 64 boards together. Lane counts are kept as bit-sliced binary counters, and the ways to finish a lane are found
+ * with one mask of boards for each count and run length.
+ *
+ * The rules are applied until none of the boards change, which reaches the same tiles as Solver.solveEasiest. A board
+ * that is complete at that point would be rated level 1 or 2 by Solver.solveDynamic, and any other board can be written
+ * back and handed to the scalar solver from where the easiest strategies stopped.
+ *
+ * Usage: java SlicedBoards [puzzles] [size]
+ */
+class SlicedBoards {
+
+	//========== State ==========//
+
+	static final int CAPACITY = Long.SIZE;				// The number of boards evaluated at once
+
+	private static final Value[] VALUES = Value.values();
+	private static final int WATER = Value.WATER.ordinal();
+	private static final int UNID = Value.SHIP_UNID.ordinal();
+	private static final int MID = Value.SHIP_MID.ordinal();
+
+	private final Board[] boards;		// The boards being evaluated, where boards[b] is bit b of every plane
+	private final int size;				// The number of rows and columns of every board
+	private final int bits;				// The number of bits needed to count the tiles in a lane
+	private final long[][] plane;		// plane[value][tile] has bit b set if board b has that value at that tile
+	private final long[][][] sum;		// sum[lane][idx][bit] holds the lane sums of every board, bit-sliced
+	private final long[][][] sumIs;		// sumIs[lane][idx][c] has bit b set if board b has a lane sum of c
+	private final long[][][] nearly;	// nearly[lane][idx][bit] holds each lane sum minus one, or zero, bit-sliced
+	private final int maxRun;			// The length of the largest ship, which is the same on every board
+	private final long[] count;			// A scratch counter, bit-sliced
+	private final long[][][] before;	// before[i][c][r]: boards whose lane can hold c ships in i tiles, ending in a run of r
+	private final long[][][] after;		// after[i][c][r]: boards whose lane can be finished from tile i after c ships and a run of r
+	private long active;				// The boards with no contradiction so far
+	private long failed;				// The boards that have reached a contradiction
+	private boolean changed;			// Whether any tile changed since this flag was last cleared
+
+	//========== Constructor ==========//
+
+	/**
+	 * Loads the current tiles of up to 64 boards. The boards themselves are not modified
+	 * @param boards - The boards to evaluate, which must all be the same size
+	 */
+	SlicedBoards(Board... boards) {
+		if (boards.length == 0 || boards.length > CAPACITY) {
+			throw new IllegalArgumentException("Between 1 and " + CAPACITY + " boards can be evaluated at once");
+		}
+		this.boards = boards;
+		this.size = boards[0].SIZE;
+		this.bits = Integer.SIZE - Integer.numberOfLeadingZeros(size);
+		this.plane = new long[VALUES.length][size * size];
+		this.sum = new long[2][size][bits];
+		this.sumIs = new long[2][size][size + 1];
+		this.nearly = new long[2][size][bits];
+		this.maxRun = boards[0].MAX_SHIP_SIZE;
+		this.count = new long[bits];
+		this.before = new long[size + 1][size + 2][maxRun + 1];
+		this.after = new long[size + 1][size + 2][maxRun + 1];
+		this.active = boards.length == CAPACITY ? -1L : (1L << boards.length) - 1;
+		for (int b = 0; b < boards.length; b++) {
+			if (boards[b].SIZE != size || boards[b].MAX_SHIP_SIZE != maxRun) {
+				throw new IllegalArgumentException("Every board must be " + size + "x" + size + " with ships up to " + maxRun);
+			}
+			long bit = 1L << b;
+			for (int i = 0; i < size * size; i++) {
+				plane[boards[b].tile(i).getValue().ordinal()][i] |= bit;
+			}
+			for (Lane lane : Lane.values()) {
+				for (int idx = 0; idx < size; idx++) {
+					int target = boards[b].getSum(lane, idx);
+					slice(sum[lane.ordinal()][idx], bit, target);
+					if (target <= size) sumIs[lane.ordinal()][idx][target] |= bit;
+					slice(nearly[lane.ordinal()][idx], bit, Math.max(target - 1, 0));
+				}
+			}
+		}
+	}
+
+	public static void main(String[] args) throws PuzzleException {
+		int puzzles = args.length > 0 ? Integer.parseInt(args[0]) : 64 * 50;
+		int size = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		int[] fleet = Benchmark.fleetFor(size);
+		Generator generator = new Generator(size);
+		Board[] candidates = new Board[puzzles];
+		for (int i = 0; i < puzzles; i++) candidates[i] = generator.puzzle("Candidate " + i, size, fleet, size * size / 4);
+
+		long start = System.nanoTime();
+		int[] sliced = new int[puzzles];
+		for (int from = 0; from < puzzles; from += CAPACITY) {
+			Board[] chunk = new Board[Math.min(CAPACITY, puzzles - from)];
+			System.arraycopy(candidates, from, chunk, 0, chunk.length);
+			System.arraycopy(new SlicedBoards(chunk).solveEasiest(), 0, sliced, from, chunk.length);
+		}
+		long slicedNanos = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		int[] scalar = new int[puzzles];
+		for (int i = 0; i < puzzles; i++) {
+			Board board = candidates[i].cloneBoard();
+			int level = Solver.solveDynamic(board);
+			scalar[i] = level <= 2 && Solver.isComplete(board) ? level : 0;
+		}
+		long scalarNanos = System.nanoTime() - start;
+
+		int agree = 0;
+		int easy = 0;
+		for (int i = 0; i < puzzles; i++) {
+			if (sliced[i] == scalar[i]) agree++;
+			else System.out.println(candidates[i].NAME + ": sliced level " + sliced[i] + ", scalar level " + scalar[i]);
+			if (sliced[i] > 0) easy++;
+		}
+		System.out.printf(Locale.ROOT, "%d puzzles, %d rated level 1 or 2, %d agree%n", puzzles, easy, agree);
+		System.out.printf(Locale.ROOT, "Sliced: %.3f ms, scalar: %.3f ms (%.1fx)%n", slicedNanos / 1e6, scalarNanos / 1e6,
+				(double) scalarNanos / slicedNanos);
+	}
+
+	//========== Methods ==========//
+
+	/**
+	 * Applies FillLanes until it makes no more progress, then FillLanes and IdentifyTiles together, recording which
+	 * boards are complete after each stage
+	 * @return The level each board would be rated by Solver.solveDynamic if it is 1 or 2, 0 if the board needs a higher
+	 * level, or -1 if it has no solution
+	 */
+	int[] solveEasiest() {
+		closeNeighbors();
+		do {
+			changed = false;
+			fillLanes();
+		} while (changed);
+		long levelOne = complete();
+		do {
+			changed = false;
+			fillLanes();
+			identifyTiles();
+		} while (changed);
+		long levelTwo = complete() & ~levelOne;
+
+		int[] levels = new int[boards.length];
+		for (int b = 0; b < boards.length; b++) {
+			long bit = 1L << b;
+			if ((failed & bit) != 0) levels[b] = -1;
+			else if ((levelOne & bit) != 0) levels[b] = 1;
+			else if ((levelTwo & bit) != 0) levels[b] = 2;
+		}
+		return levels;
+	}
+
+	/**
+	 * Copies the tiles of one of the evaluated boards onto a Board, which must have the same tiles the evaluated board
+	 * started with or fewer. No neighbors are updated, since the sliced tiles already satisfy every neighbor rule
+	 * @param b - The index of the evaluated board
+	 * @param board - The Board to update, typically a clone of the original
+	 */
+	void writeBack(int b, Board board) {
+		long bit = 1L << b;
+		for (int i = 0; i < size * size; i++) {
+			Value value = Value.BLANK;
+			for (int v = 1; v < VALUES.length; v++) {
+				if ((plane[v][i] & bit) != 0) value = VALUES[v];
+			}
+			board.tile(i).restoreValue(value);
+		}
+	}
+
+	//========== Rules ==========//
+
+	/**
+	 * Fills the blank tiles of every lane that have the same value in every way to finish the lane, as LanePatterns does
+	 * for a single lane. The ways to finish are found with the same counts and run lengths as LanePatterns, each held as
+	 * a mask of the boards that can reach it
+	 */
+	private void fillLanes() {
+		for (Lane lane : Lane.values()) {
+			for (int idx = 0; idx < size; idx++) {
+				long[] target = sumIs[lane.ordinal()][idx];
+				for (int c = 0; c <= size + 1; c++) {
+					for (int r = 0; r <= maxRun; r++) {
+						before[0][c][r] = 0;
+						after[size][c][r] = c <= size ? target[c] : 0;
+					}
+				}
+				before[0][0][0] = active;
+				for (int i = 0; i < size; i++) {
+					int tile = index(lane, idx, i);
+					long canWater = ~ship(tile);
+					long canShip = ~plane[WATER][tile];
+					long[][] next = before[i + 1];
+					for (long[] runs : next) Arrays.fill(runs, 0);
+					for (int c = 0; c <= i; c++) {
+						for (int r = 0; r <= maxRun; r++) {
+							long reach = before[i][c][r];
+							if (reach == 0) continue;
+							next[c][0] |= reach & canWater;
+							if (r < maxRun) next[c + 1][r + 1] |= reach & canShip;
+						}
+					}
+				}
+				for (int i = size - 1; i >= 0; i--) {
+					int tile = index(lane, idx, i);
+					long canWater = ~ship(tile);
+					long canShip = ~plane[WATER][tile];
+					for (int c = 0; c <= size; c++) {
+						for (int r = 0; r <= maxRun; r++) {
+							long finish = canWater & after[i + 1][c][0];
+							if (r < maxRun) finish |= canShip & after[i + 1][c + 1][r + 1];
+							after[i][c][r] = finish;
+						}
+					}
+				}
+				fail(active & ~after[0][0][0]);
+				for (int i = 0; i < size; i++) {
+					int tile = index(lane, idx, i);
+					long blank = blank(tile);
+					if ((blank & active) == 0) continue;
+					long asWater = 0;
+					long asShip = 0;
+					for (int c = 0; c <= i; c++) {
+						for (int r = 0; r <= maxRun; r++) {
+							long reach = before[i][c][r];
+							if (reach == 0) continue;
+							asWater |= reach & after[i + 1][c][0];
+							if (r < maxRun) asShip |= reach & after[i + 1][c + 1][r + 1];
+						}
+					}
+					setWater(tile, blank & ~asShip);
+					setUnid(tile, blank & ~asWater);
+				}
+			}
+		}
+		closeNeighbors();
+	}
+
+	/**
+	 * Identifies every unidentified ship tile and ship middle whose neighbors decide its value, as in
+	 * Solver.identifyShipUnid and Solver.identifyShipMid
+	 */
+	private void identifyTiles() {
+		long[] rowTight = new long[size];
+		long[] colTight = new long[size];
+		for (int idx = 0; idx < size; idx++) {
+			countLane(Lane.ROW, idx, true);
+			rowTight[idx] = atLeast(count, nearly[Lane.ROW.ordinal()][idx]);
+			countLane(Lane.COL, idx, true);
+			colTight[idx] = atLeast(count, nearly[Lane.COL.ordinal()][idx]);
+		}
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++) {
+				int tile = row * size + col;
+				long unid = plane[UNID][tile] & active;
+				long mid = plane[MID][tile] & active;
+				if ((unid | mid) == 0) continue;
+				// Tiles beyond the edge of the board count as water and never as ship
+				long waterN = row > 0 ? plane[WATER][tile - size] : -1L;
+				long waterS = row < size - 1 ? plane[WATER][tile + size] : -1L;
+				long waterE = col < size - 1 ? plane[WATER][tile + 1] : -1L;
+				long waterW = col > 0 ? plane[WATER][tile - 1] : -1L;
+				long shipN = row > 0 ? ship(tile - size) : 0;
+				long shipS = row < size - 1 ? ship(tile + size) : 0;
+				long shipE = col < size - 1 ? ship(tile + 1) : 0;
+				long shipW = col > 0 ? ship(tile - 1) : 0;
+
+				setShip(tile, Value.SHIP_SUB, unid & waterN & waterS & waterE & waterW);
+				setShip(tile, Value.SHIP_NORTH, unid & waterN & shipS);
+				setShip(tile, Value.SHIP_SOUTH, unid & waterS & shipN);
+				setShip(tile, Value.SHIP_EAST, unid & waterE & shipW);
+				setShip(tile, Value.SHIP_WEST, unid & waterW & shipE);
+				setShip(tile, Value.SHIP_MID_V, unid & shipN & shipS);
+				setShip(tile, Value.SHIP_MID_H, unid & shipE & shipW);
+
+				long across = waterN | waterS | shipE | shipW;
+				long down = waterE | waterW | shipN | shipS;
+				long horizontal = across | (~down & colTight[col]);
+				long vertical = down | (~across & rowTight[row]);
+				fail(mid & horizontal & vertical);
+				setShip(tile, Value.SHIP_MID_H, mid & horizontal & ~vertical);
+				setShip(tile, Value.SHIP_MID_V, mid & vertical & ~horizontal);
+			}
+		}
+		closeNeighbors();
+	}
+
+	/**
+	 * Applies the water and ship pieces implied by every ship tile until nothing changes, as Tile.setValue does for a
+	 * single tile
+	 */
+	private void closeNeighbors() {
+		boolean again = true;
+		while (again) {
+			again = false;
+			for (int row = 0; row < size; row++) {
+				for (int col = 0; col < size; col++) {
+					int tile = row * size + col;
+					long any = ship(tile) & active;
+					if (any == 0) continue;
+					long sub = plane[Value.SHIP_SUB.ordinal()][tile];
+					long midH = plane[Value.SHIP_MID_H.ordinal()][tile];
+					long midV = plane[Value.SHIP_MID_V.ordinal()][tile];
+					long north = plane[Value.SHIP_NORTH.ordinal()][tile];
+					long south = plane[Value.SHIP_SOUTH.ordinal()][tile];
+					long east = plane[Value.SHIP_EAST.ordinal()][tile];
+					long west = plane[Value.SHIP_WEST.ordinal()][tile];
+					boolean before = changed;
+					changed = false;
+					neighbor(row - 1, col - 1, any, 0);
+					neighbor(row - 1, col + 1, any, 0);
+					neighbor(row + 1, col - 1, any, 0);
+					neighbor(row + 1, col + 1, any, 0);
+					neighbor(row - 1, col, sub | midH | north | east | west, south | midV);
+					neighbor(row + 1, col, sub | midH | south | east | west, north | midV);
+					neighbor(row, col + 1, sub | midV | east | north | south, west | midH);
+					neighbor(row, col - 1, sub | midV | west | north | south, east | midH);
+					again |= changed;
+					changed |= before;
+				}
+			}
+		}
+	}
+
+	//========== Tile Updates ==========//
+
+	/**
+	 * Sets a neighbor to water on some boards and to a ship piece on others, ignoring positions beyond the board
+	 */
+	private void neighbor(int row, int col, long toWater, long toShip) {
+		if (row < 0 || col < 0 || row >= size || col >= size) return;
+		setWater(row * size + col, toWater);
+		setUnid(row * size + col, toShip);
+	}
+
+	/**
+	 * Sets a tile to water on the selected boards, failing any board where it is a ship piece
+	 */
+	private void setWater(int tile, long boards) {
+		boards &= active;
+		if (boards == 0) return;
+		fail(boards & ship(tile));
+		long set = boards & active & ~plane[WATER][tile];
+		if (set != 0) {
+			plane[WATER][tile] |= set;
+			changed = true;
+		}
+	}
+
+	/**
+	 * Sets a blank tile to an unidentified ship piece on the selected boards, failing any board where it is water
+	 */
+	private void setUnid(int tile, long boards) {
+		boards &= active;
+		if (boards == 0) return;
+		fail(boards & plane[WATER][tile]);
+		long set = boards & active & blank(tile);
+		if (set != 0) {
+			plane[UNID][tile] |= set;
+			changed = true;
+		}
+	}
+
+	/**
+	 * Sets a tile to an identified ship piece on the selected boards, with the same rules as Tile.tryValue
+	 */
+	private void setShip(int tile, Value value, long boards) {
+		boards &= active;
+		if (boards == 0) return;
+		int v = value.ordinal();
+		long unknown = plane[UNID][tile] | plane[MID][tile];
+		long other = ship(tile) & ~unknown & ~plane[v][tile];
+		long conflict = plane[WATER][tile] | other;
+		if (value != Value.SHIP_MID_H && value != Value.SHIP_MID_V) conflict |= plane[MID][tile];
+		fail(boards & conflict);
+		long set = boards & active & ~plane[v][tile];
+		if (set != 0) {
+			plane[UNID][tile] &= ~set;
+			plane[MID][tile] &= ~set;
+			plane[v][tile] |= set;
+			changed = true;
+		}
+	}
+
+	private void fail(long boards) {
+		failed |= boards;
+		active &= ~boards;
+	}
+
+	//========== Private Methods ==========//
+
+	private long ship(int tile) {
+		long result = 0;
+		for (int v = UNID; v < VALUES.length; v++) result |= plane[v][tile];
+		return result;
+	}
+
+	private long blank(int tile) {
+		return ~(plane[WATER][tile] | ship(tile));
+	}
+
+	private int index(Lane lane, int idx, int i) {
+		return lane == Lane.ROW ? idx * size + i : i * size + idx;
+	}
+
+	/**
+	 * Gets the boards that are complete, with no blank or unidentified tiles and every lane matching its sum
+	 */
+	private long complete() {
+		long open = 0;
+		for (int i = 0; i < size * size; i++) {
+			open |= blank(i) | plane[UNID][i] | plane[MID][i];
+		}
+		for (Lane lane : Lane.values()) {
+			for (int idx = 0; idx < size; idx++) {
+				countLane(lane, idx, true);
+				open |= ~equal(count, sum[lane.ordinal()][idx]);
+			}
+		}
+		return active & ~open;
+	}
+
+	/**
+	 * Counts the ship or water tiles in a lane of every board into the scratch counter
+	 */
+	private void countLane(Lane lane, int idx, boolean ships) {
+		for (int k = 0; k < bits; k++) count[k] = 0;
+		for (int i = 0; i < size; i++) {
+			int tile = index(lane, idx, i);
+			long carry = ships ? ship(tile) : plane[WATER][tile];
+			for (int k = 0; k < bits && carry != 0; k++) {
+				long next = count[k] & carry;
+				count[k] ^= carry;
+				carry = next;
+			}
+		}
+	}
+
+	/**
+	 * Sets a bit-sliced number to a value for one board
+	 */
+	private static void slice(long[] number, long bit, int value) {
+		for (int k = 0; k < number.length; k++) {
+			if ((value >> k & 1) != 0) number[k] |= bit;
+		}
+	}
+
+	/**
+	 * @return The boards where two bit-sliced numbers are equal
+	 */
+	private static long equal(long[] a, long[] b) {
+		long result = -1L;
+		for (int k = 0; k < a.length; k++) result &= ~(a[k] ^ b[k]);
+		return result;
+	}
+
+	/**
+	 * @return The boards where the first bit-sliced number is at least the second
+	 */
+	private static long atLeast(long[] a, long[] b) {
+		long greater = 0;
+		long same = -1L;
+		for (int k = a.length - 1; k >= 0; k--) {
+			greater |= same & a[k] & ~b[k];
+			same &= ~(a[k] ^ b[k]);
+		}
+		return greater | same;
+	}
+}
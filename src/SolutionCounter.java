@@ -0,0 +1,365 @@
+import Enums.Lane;
+import Enums.Value;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The SolutionCounter class counts every solution consistent with a Board's sums, fleet and known tiles, and how many of
+ * them place a ship at each tile. It sweeps the board a row at a time. Each row is one of the patterns of ship tiles
+ * that fits the row sum and the known tiles of that row, and the frontier between two rows records only what the rows
+ * below need to know: the ship in progress in each column, how many ship tiles each column has so far, and how many
+ * ships of each size are already complete. Frontiers reached in more than one way are merged and counted once.
+ *
+ * A second sweep from the bottom row up counts the ways to finish from each frontier, so the number of solutions with a
+ * ship at any tile is the sum over the frontiers above and below it.
+ *
+ * Usage: java SolutionCounter [puzzle number]
+ */
+class SolutionCounter {
+
+	//========== State ==========//
+
+	private static final byte WATER = 0;		// The frontier code of a column whose last tile was water
+	private static final byte ACROSS = 1;		// The frontier code of a column whose last tile was part of a horizontal ship
+												// Any higher code is 1 + the length of a vertical ship in progress
+
+	private final Board board;
+	private final int size;
+	private final int[][] patterns;				// patterns[row] holds every bit mask of ship tiles that fits the row
+	private final ArrayList<Map<Frontier, long[]>> levels;	// levels.get(r) maps each frontier above row r to {ways in, ways out}
+	private long solutions;
+	private long[][] ships;						// ships[row][col] is the number of solutions with a ship at that tile
+
+	/**
+	 * The state between two rows. Frontiers are compared by value so that equal states reached by different rows merge
+	 */
+	private static class Frontier {
+		final byte[] code;		// The frontier code of each column
+		final byte[] column;	// The number of ship tiles so far in each column
+		final byte[] fleet;		// The number of complete ships of each size, where fleet[0] is the number of submarines
+		final int hash;
+
+		Frontier(byte[] code, byte[] column, byte[] fleet) {
+			this.code = code;
+			this.column = column;
+			this.fleet = fleet;
+			this.hash = 31 * (31 * Arrays.hashCode(code) + Arrays.hashCode(column)) + Arrays.hashCode(fleet);
+		}
+
+		public int hashCode() {
+			return hash;
+		}
+
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Frontier)) return false;
+			Frontier other = (Frontier) obj;
+			return hash == other.hash && Arrays.equals(code, other.code) && Arrays.equals(column, other.column)
+					&& Arrays.equals(fleet, other.fleet);
+		}
+	}
+
+	//========== Constructor ==========//
+
+	/**
+	 * Counts the solutions of a Board. The Board is not modified
+	 * @param board - The puzzle Board, with any tiles already known
+	 * @throws ArithmeticException if there are more solutions than fit in a long
+	 */
+	SolutionCounter(Board board) {
+		this.board = board;
+		this.size = board.SIZE;
+		if (size > 30) throw new IllegalArgumentException("Boards larger than 30x30 cannot be counted");
+		this.patterns = new int[size + 1][];
+		for (int row = 0; row < size; row++) patterns[row] = rowPatterns(row);
+		patterns[size] = new int[] {0};
+		this.levels = new ArrayList<>();
+		sweepDown();
+		sweepUp();
+	}
+
+	public static void main(String[] args) throws Exception {
+		int id = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+		Board board = Reader.readPuzzle(id);
+		long start = System.nanoTime();
+		SolutionCounter counter = new SolutionCounter(board);
+		long nanos = System.nanoTime() - start;
+		System.out.println(board);
+		System.out.printf(Locale.ROOT, "%d solutions, counted in %.3f ms%n", counter.count(), nanos / 1e6);
+		double[][] heatmap = counter.probabilities();
+		for (double[] row : heatmap) {
+			StringBuilder line = new StringBuilder();
+			for (double p : row) line.append(String.format(Locale.ROOT, "%4.0f", p * 100));
+			System.out.println(line);
+		}
+	}
+
+	//========== Methods ==========//
+
+	/**
+	 * Gets the number of solutions
+	 * @return The number of solutions, which is 1 for a puzzle with a unique solution
+	 */
+	long count() {
+		return solutions;
+	}
+
+	/**
+	 * Gets the number of solutions with a ship at a tile
+	 * @param row - The row of the tile
+	 * @param col - The column of the tile
+	 * @return A number between 0 and count()
+	 */
+	long ships(int row, int col) {
+		return ships[row][col];
+	}
+
+	/**
+	 * Gets the fraction of solutions with a ship at each tile, where 0 means the tile must be water and 1 means it must
+	 * be part of a ship
+	 * @return An array of fractions, indexed by row then column, filled with 0 if there are no solutions
+	 */
+	double[][] probabilities() {
+		double[][] result = new double[size][size];
+		if (solutions == 0) return result;
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++) result[row][col] = (double) ships[row][col] / solutions;
+		}
+		return result;
+	}
+
+	//========== Sweeps ==========//
+
+	/**
+	 * Counts the ways to reach each frontier from the top of the board. The last level is below a virtual row of water,
+	 * where every ship is complete
+	 */
+	private void sweepDown() {
+		Map<Frontier, long[]> level = new HashMap<>();
+		level.put(new Frontier(new byte[size], new byte[size], new byte[board.MAX_SHIP_SIZE]), new long[] {1, 0});
+		levels.add(level);
+		for (int row = 0; row <= size; row++) {
+			Map<Frontier, long[]> next = new HashMap<>();
+			for (Map.Entry<Frontier, long[]> entry : level.entrySet()) {
+				for (int pattern : patterns[row]) {
+					Frontier frontier = advance(entry.getKey(), row, pattern);
+					if (frontier == null) continue;
+					long[] ways = next.computeIfAbsent(frontier, key -> new long[2]);
+					ways[0] = Math.addExact(ways[0], entry.getValue()[0]);
+				}
+			}
+			levels.add(next);
+			level = next;
+		}
+	}
+
+	/**
+	 * Counts the ways to finish from each frontier, and adds up the solutions with a ship at each tile
+	 */
+	private void sweepUp() {
+		ships = new long[size][size];
+		for (Map.Entry<Frontier, long[]> entry : levels.get(size + 1).entrySet()) {
+			if (isFinal(entry.getKey())) {
+				entry.getValue()[1] = 1;
+				solutions = Math.addExact(solutions, entry.getValue()[0]);
+			}
+		}
+		for (int row = size; row >= 0; row--) {
+			Map<Frontier, long[]> next = levels.get(row + 1);
+			for (Map.Entry<Frontier, long[]> entry : levels.get(row).entrySet()) {
+				long[] ways = entry.getValue();
+				for (int pattern : patterns[row]) {
+					Frontier frontier = advance(entry.getKey(), row, pattern);
+					if (frontier == null) continue;
+					long out = next.get(frontier)[1];
+					if (out == 0) continue;
+					ways[1] = Math.addExact(ways[1], out);
+					if (row < size) {
+						long through = Math.multiplyExact(ways[0], out);
+						for (int col = 0; col < size; col++) {
+							if ((pattern >> col & 1) != 0) ships[row][col] = Math.addExact(ships[row][col], through);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	//========== Private Methods ==========//
+
+	/**
+	 * Gets every pattern of ship tiles that fits a row's sum and the known tiles of that row, including the parts of a
+	 * known ship piece that lie within the row
+	 */
+	private int[] rowPatterns(int row) {
+		int sum = board.getSum(Lane.ROW, row);
+		ArrayList<Integer> result = new ArrayList<>();
+		if (sum > size) return new int[0];
+		// Visit every bit mask with exactly sum bits set, in increasing order
+		int pattern = sum == 0 ? 0 : (1 << sum) - 1;
+		while (pattern < 1 << size) {
+			if (fitsRow(row, pattern)) result.add(pattern);
+			if (pattern == 0) break;
+			int low = pattern & -pattern;
+			int ripple = pattern + low;
+			pattern = ripple | (((pattern ^ ripple) >>> 2) / low);
+		}
+		int[] array = new int[result.size()];
+		for (int i = 0; i < array.length; i++) array[i] = result.get(i);
+		return array;
+	}
+
+	private boolean fitsRow(int row, int pattern) {
+		for (int col = 0; col < size; col++) {
+			boolean ship = (pattern >> col & 1) != 0;
+			boolean west = col > 0 && (pattern >> (col - 1) & 1) != 0;
+			boolean east = (pattern >> (col + 1) & 1) != 0;
+			switch (board.TILES[row][col].getValue()) {
+				case BLANK: break;
+				case WATER: if (ship) return false; break;
+				case SHIP_UNID: if (!ship) return false; break;
+				case SHIP_MID: if (!ship || west != east) return false; break;
+				case SHIP_MID_H: if (!ship || !west || !east) return false; break;
+				case SHIP_EAST: if (!ship || !west || east) return false; break;
+				case SHIP_WEST: if (!ship || west || !east) return false; break;
+				default: if (!ship || west || east) return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Moves a frontier down past one row of ship tiles, checking the row against the tiles above it and the known tiles
+	 * above it against the row
+	 * @param above - The frontier above the row
+	 * @param row - The index of the row, or SIZE for the virtual row of water below the board
+	 * @param pattern - The ship tiles of the row, as a bit mask
+	 * @return The frontier below the row, or null if the row cannot follow the frontier
+	 */
+	private Frontier advance(Frontier above, int row, int pattern) {
+		byte[] code = new byte[size];
+		byte[] column = above.column.clone();
+		byte[] fleet = above.fleet.clone();
+		int remaining = size - row - 1;
+
+		for (int col = 0; col < size; col++) {
+			boolean ship = (pattern >> col & 1) != 0;
+			byte up = above.code[col];
+			if (row > 0 && !fitsBelow(board.TILES[row - 1][col].getValue(), up, ship)) return null;
+			if (!ship) {
+				if (up > ACROSS && !complete(fleet, up - ACROSS)) return null;
+				continue;
+			}
+			if (col > 0 && above.code[col - 1] != WATER) return null;
+			if (col < size - 1 && above.code[col + 1] != WATER) return null;
+			boolean across = (col > 0 && (pattern >> (col - 1) & 1) != 0) || (pattern >> (col + 1) & 1) != 0;
+			if (across) {
+				if (up != WATER) return null;
+				code[col] = ACROSS;
+			} else {
+				if (up == ACROSS) return null;
+				int length = up == WATER ? 1 : up - ACROSS + 1;
+				if (length > board.MAX_SHIP_SIZE || !available(fleet, length)) return null;
+				code[col] = (byte) (length + ACROSS);
+			}
+			column[col]++;
+			if (!fitsAbove(board.TILES[row][col].getValue(), up, across)) return null;
+		}
+
+		// Horizontal ships are complete as soon as their row is placed
+		int col = 0;
+		while (col < size) {
+			if ((pattern >> col & 1) == 0) {
+				col++;
+				continue;
+			}
+			int start = col;
+			while (col < size && (pattern >> col & 1) != 0) col++;
+			int length = col - start;
+			if (length > 1 && (length > board.MAX_SHIP_SIZE || !complete(fleet, length))) return null;
+		}
+
+		if (row < size) {
+			for (int c = 0; c < size; c++) {
+				int sum = board.getSum(Lane.COL, c);
+				if (column[c] > sum || column[c] + remaining < sum) return null;
+			}
+		}
+		return new Frontier(code, column, fleet);
+	}
+
+	/**
+	 * Checks a known ship piece against the tile above it
+	 * @param value - The value of the known tile
+	 * @param up - The frontier code of the tile above it
+	 * @param across - Whether the known tile is part of a horizontal ship
+	 */
+	private static boolean fitsAbove(Value value, byte up, boolean across) {
+		switch (value) {
+			case SHIP_SUB:
+			case SHIP_NORTH:
+				return up == WATER;
+			case SHIP_SOUTH:
+			case SHIP_MID_V:
+				return up > ACROSS;
+			case SHIP_MID:
+				return across || up > ACROSS;
+			default:
+				return true;
+		}
+	}
+
+	/**
+	 * Checks a known tile against the tile below it
+	 * @param value - The value of the known tile
+	 * @param code - The frontier code of the known tile
+	 * @param ship - Whether the tile below it is part of a ship
+	 */
+	private static boolean fitsBelow(Value value, byte code, boolean ship) {
+		switch (value) {
+			case SHIP_SUB:
+			case SHIP_SOUTH:
+				return !ship;
+			case SHIP_NORTH:
+			case SHIP_MID_V:
+				return ship;
+			case SHIP_MID:
+				return code == ACROSS || ship;
+			default:
+				return true;
+		}
+	}
+
+	/**
+	 * Records a complete ship
+	 * @return False if the fleet has no more ships of that size
+	 */
+	private boolean complete(byte[] fleet, int length) {
+		if (fleet[length - 1] >= board.getFleet(length)) return false;
+		fleet[length - 1]++;
+		return true;
+	}
+
+	/**
+	 * @return True if the fleet still has a ship at least as long as a vertical ship in progress
+	 */
+	private boolean available(byte[] fleet, int length) {
+		for (int i = length; i <= board.MAX_SHIP_SIZE; i++) {
+			if (fleet[i - 1] < board.getFleet(i)) return true;
+		}
+		return false;
+	}
+
+	private boolean isFinal(Frontier frontier) {
+		for (int col = 0; col < size; col++) {
+			if (frontier.column[col] != board.getSum(Lane.COL, col)) return false;
+		}
+		for (int length = 1; length <= board.MAX_SHIP_SIZE; length++) {
+			if (frontier.fleet[length - 1] != board.getFleet(length)) return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,142 @@
+import Exceptions.PuzzleException;
+
+import java.util.Locale;
+
+/**
+ * The SolveResult class holds the outcome of solving a single Board, and converts it to a single line of JSON for the
+ * solve service and the batch command line.
+ */
+class SolveResult {
+
+	//========== State ==========//
+
+	final String name;		// The puzzle identifier
+	final boolean solved;	// Whether the solver completed the Board
+	final int level;		// The difficulty level, 0 if the puzzle could not be rated, or -1 if it was not rated
+	final String solution;	// The final state of the Board, in the format of Board.toString
+	final String log;		// The actions taken on the Board, or null if not requested
+	final long nanos;		// The time taken to solve
+	final String error;		// The reason the puzzle could not be solved, or null
+
+	//========== Constructor ==========//
+
+	private SolveResult(String name, boolean solved, int level, String solution, String log, long nanos, String error) {
+		this.name = name;
+		this.solved = solved;
+		this.level = level;
+		this.solution = solution;
+		this.log = log;
+		this.nanos = nanos;
+		this.error = error;
+	}
+
+	//========== Static Functions ==========//
+
+	/**
+	 * Solves and rates a Board
+	 * @param board - The puzzle Board to solve
+	 * @param withLog - Whether to include the log of actions taken
+	 * @return The result, which holds an error if the Board is invalid
+	 */
+	static SolveResult solve(Board board, boolean withLog) {
+		return solve(board, withLog, true);
+	}
+
+	/**
+	 * Solves a Board, either rating it with Solver.solveDynamic or finding only the answer with Solver.solveFast
+	 * @param board - The puzzle Board to solve
+	 * @param withLog - Whether to include the log of actions taken
+	 * @param rate - Whether to rate the Board
+	 * @return The result, which holds an error if the Board is invalid
+	 */
+	static SolveResult solve(Board board, boolean withLog, boolean rate) {
+		return solve(board, withLog, rate, false);
+	}
+
+	/**
+	 * Solves a Board, either rating it with Solver.solveDynamic or finding only the answer with Solver.solveFast or
+	 * SatBackend
+	 * @param board - The puzzle Board to solve
+	 * @param withLog - Whether to include the log of actions taken
+	 * @param rate - Whether to rate the Board
+	 * @param sat - Whether to find the answer with SatBackend, if the Board is not rated
+	 * @return The result, which holds an error if the Board is invalid
+	 */
+	static SolveResult solve(Board board, boolean withLog, boolean rate, boolean sat) {
+		long start = System.nanoTime();
+		try {
+			int level = -1;
+			if (rate) level = Solver.solveDynamic(board);
+			else if (sat) SatBackend.solve(board);
+			else Solver.solveFast(board);
+			return new SolveResult(board.NAME, Solver.isComplete(board), level, board.toString(),
+					withLog ? board.log.getLog() : null, System.nanoTime() - start, null);
+		} catch (PuzzleException e) {
+			return new SolveResult(board.NAME, false, rate ? 0 : -1, board.toString(), withLog ? board.log.getLog() : null,
+					System.nanoTime() - start, e.getMessage());
+		}
+	}
+
+	/**
+	 * Creates a result from a stored rating, after the stored solution has been copied onto the Board
+	 * @param board - The puzzle Board
+	 * @param record - The stored rating
+	 * @param nanos - The time taken to look up the rating
+	 * @return The result
+	 */
+	static SolveResult stored(Board board, DifficultyStore.Record record, long nanos) {
+		return new SolveResult(board.NAME, record.solved, record.level, board.toString(), null, nanos,
+				record.level == 0 ? "Invalid puzzle" : null);
+	}
+
+	/**
+	 * Creates a result for a puzzle that could not be read
+	 * @param name - The puzzle identifier
+	 * @param error - The reason the puzzle could not be read
+	 * @return The result
+	 */
+	static SolveResult error(String name, String error) {
+		return new SolveResult(name, false, 0, null, null, 0, error);
+	}
+
+	//========== Methods ==========//
+
+	/**
+	 * Converts this result to a single line of JSON
+	 * @return A JSON object with no line breaks
+	 */
+	String toJson() {
+		StringBuilder json = new StringBuilder("{\"name\":").append(quote(name));
+		json.append(",\"solved\":").append(solved);
+		if (level >= 0) json.append(",\"level\":").append(level);
+		json.append(",\"millis\":").append(String.format(Locale.ROOT, "%.3f", nanos / 1e6));
+		if (solution != null) json.append(",\"solution\":").append(quote(solution));
+		if (log != null) json.append(",\"log\":").append(quote(log));
+		if (error != null) json.append(",\"error\":").append(quote(error));
+		return json.append('}').toString();
+	}
+
+	/**
+	 * Converts a string to a quoted JSON string
+	 * @param s - The string to convert
+	 * @return The string surrounded by quotes, with special characters escaped
+	 */
+	static String quote(String s) {
+		if (s == null) return "null";
+		StringBuilder result = new StringBuilder(s.length() + 2).append('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+				case '"': result.append("\\\""); break;
+				case '\\': result.append("\\\\"); break;
+				case '\n': result.append("\\n"); break;
+				case '\r': result.append("\\r"); break;
+				case '\t': result.append("\\t"); break;
+				default:
+					if (c < 0x20) result.append(String.format("\\u%04x", (int) c));
+					else result.append(c);
+			}
+		}
+		return result.append('"').toString();
+	}
+}
@@ -1,11 +1,19 @@
 import Enums.Dir;
 import Enums.Lane;
 import Enums.Value;
+import Events.LookAheadEvent;
+import Events.Recording;
+import Events.SolveEvent;
+import Events.StrategyEvent;
 import Exceptions.InvalidBoardException;
 import Exceptions.InvalidMoveException;
 import Exceptions.PuzzleException;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.concurrent.CancellationException;
 
 /**
  * Created by Matt on 7/30/2017.
@@ -18,22 +26,70 @@ import java.util.ArrayList;
  */
 public class Solver {
 
+	/** The name of the strategy run at each level of solveDynamic, where STRATEGIES[0] is level 1 */
+	static final String[] STRATEGIES = {"FillLanes", "IdentifyTiles", "CompleteShipSizes", "IdentifyShips",
+			"FindSharedTiles", "FillPartialLane", "LaneCapacity", "SimpleLookAhead", "ProbeTiles"};
+
+	/**
+	 * The version of STRATEGIES. A difficulty level only means something next to the table it was rated with, so this
+	 * must change whenever a strategy is added, removed or moved to another level. Stored ratings and benchmark
+	 * baselines from another version are not used
+	 * 1 - FillLanes to ProbeTiles, without LaneCapacity
+	 * 2 - LaneCapacity added at level 7, moving SimpleLookAhead to 8 and ProbeTiles to 9
+	 */
+	static final int STRATEGY_VERSION = 2;
+
+	/** The first level that tests hypotheses, which solveFast leaves to its search */
+	private static final int LOOK_AHEAD_LEVEL = 8;
+
 	static int solveDynamic(Board board) throws PuzzleException {
+		SolveEvent event = Recording.isActive() ? new SolveEvent() : null;
+		if (event != null) event.begin();
 		boolean loop = true;
 		int level = 1;
 		int maxLevel = 1;
-		do {
-			board.log.reset();
-			loop = execute(board, level);
-			if (isComplete(board)) loop = false;
-			if (board.log.getChanged()) level=1;
-			else level++;
-			if (level > maxLevel) maxLevel = level;
-		} while (loop);
-		return maxLevel;
+		try {
+			do {
+				if (Thread.currentThread().isInterrupted()) throw new CancellationException(board.NAME + " was interrupted");
+				board.log.reset();
+				loop = execute(board, level);
+				if (isComplete(board)) loop = false;
+				if (board.log.getChanged()) level=1;
+				else level++;
+				if (level > maxLevel) maxLevel = level;
+			} while (loop);
+			if (event != null) event.level = maxLevel;
+			return maxLevel;
+		} finally {
+			if (event != null && event.shouldCommit()) {
+				event.puzzle = board.NAME;
+				event.rated = true;
+				event.solved = isComplete(board);
+				event.commit();
+			}
+		}
 	}
 
 	static boolean execute(Board board, int level) throws PuzzleException {
+		if (level > STRATEGIES.length) return false;
+		board.log.countRun(level);
+		StrategyEvent event = Recording.isActive() ? new StrategyEvent() : null;
+		if (event != null) event.begin();
+		int version = board.getVersion();
+		try {
+			return runStrategy(board, level);
+		} finally {
+			if (event != null && event.shouldCommit()) {
+				event.puzzle = board.NAME;
+				event.level = level;
+				event.strategy = STRATEGIES[level - 1];
+				event.changes = board.getVersion() - version;
+				event.commit();
+			}
+		}
+	}
+
+	private static boolean runStrategy(Board board, int level) throws PuzzleException {
 		switch (level) {
 			case 1: strategyFillLanes(board);
 					return true;
@@ -43,11 +99,118 @@ public class Solver {
 			case 4: strategyIdentifyShips(board); return true;
 			case 5: strategyFindSharedTiles(board); return true;
 			case 6: strategyFillPartialLane(board); return true;
-			case 7: strategySimpleLookAhead(board); return true;
+			case 7: strategyLaneCapacity(board); return true;
+			case 8: strategySimpleLookAhead(board); return true;
+			case 9: strategyProbeTiles(board); return true;
 			default: return false;
 		}
 	}
 
+	/**
+	 * Solves a Board as quickly as possible without rating it. Instead of returning to level 1 after every change, the
+	 * strategies below lookahead are scheduled by how many changes they have recently made per microsecond. When none
+	 * of them can make progress, a search tries each location of the most constrained ship in turn
+	 * @param board - The puzzle Board being solved
+	 * @return True if the Board was completed
+	 * @throws PuzzleException if the Board has no solution
+	 */
+	static boolean solveFast(Board board) throws PuzzleException {
+		SolveEvent event = Recording.isActive() ? new SolveEvent() : null;
+		if (event != null) event.begin();
+		try {
+			return solveFastFrom(board);
+		} finally {
+			if (event != null && event.shouldCommit()) {
+				event.puzzle = board.NAME;
+				event.level = -1;
+				event.solved = isComplete(board);
+				event.commit();
+			}
+		}
+	}
+
+	private static boolean solveFastFrom(Board board) throws PuzzleException {
+		propagate(board);
+		if (isComplete(board)) {
+			validateFleet(board);
+			return true;
+		}
+		return search(board);
+	}
+
+	/**
+	 * Runs the strategies below lookahead until none of them can make progress, always choosing the strategy with the
+	 * best recent yield. A strategy that made no changes is not run again until the Board changes. DomainPropagator
+	 * first narrows every tile as far as the neighbor and lane constraints allow, and again whenever the strategies
+	 * stop making progress on a Board it has not seen, in which case they run again if it changed anything
+	 * @param board - The puzzle Board being solved
+	 * @throws PuzzleException if the Board has no solution
+	 */
+	private static void propagate(Board board) throws PuzzleException {
+		int levels = LOOK_AHEAD_LEVEL - 1;
+		double[] score = new double[levels];
+		int[] idleAt = new int[levels];
+		for (int i = 0; i < levels; i++) {
+			score[i] = 1.0 / (i + 1);
+			idleAt[i] = -1;
+		}
+		DomainPropagator.propagate(board);
+		int propagatedAt = board.getVersion();
+		while (!isComplete(board)) {
+			if (Thread.currentThread().isInterrupted()) throw new CancellationException(board.NAME + " was interrupted");
+			int version = board.getVersion();
+			int best = -1;
+			for (int i = 0; i < levels; i++) {
+				if (idleAt[i] != version && (best < 0 || score[i] > score[best])) best = i;
+			}
+			if (best < 0) {
+				if (propagatedAt == version) return;
+				DomainPropagator.propagate(board);
+				propagatedAt = board.getVersion();
+				continue;
+			}
+			long start = System.nanoTime();
+			board.log.reset();
+			execute(board, best + 1);
+			double micros = (System.nanoTime() - start) / 1000.0 + 1;
+			int changes = board.getVersion() - version;
+			score[best] = (score[best] + changes / micros) / 2;
+			if (changes == 0) idleAt[best] = version;
+		}
+	}
+
+	/**
+	 * Tries each location of the ship size with the fewest candidate locations, solving a copy of the Board for each
+	 * @param board - The puzzle Board being solved
+	 * @return True if the Board was completed
+	 * @throws PuzzleException if no location leads to a solution
+	 */
+	private static boolean search(Board board) throws PuzzleException {
+		int size = 0;
+		for (int i = board.MAX_SHIP_SIZE; i >= 1; i--) {
+			if (getMissingShips(board, i) > 0 && (size == 0 || board.getShipList(i, false).size() < board.getShipList(size, false).size())) {
+				size = i;
+			}
+		}
+		if (size == 0) throw new InvalidBoardException("No ships left to place in " + board.NAME);
+		ArrayList<Ship> shipList = board.getShipList(size, false);
+		for (int i = 0; i < shipList.size(); i++) {
+			Board clone = board.cloneBoard();
+			try {
+				clone.getShipList(size, false).get(i).confirm();
+				if (solveFastFrom(clone)) {
+					for (int idx = 0; idx < board.SIZE * board.SIZE; idx++) {
+						board.tile(idx).restoreValue(clone.tile(idx).getValue());
+					}
+					return true;
+				}
+			} catch (PuzzleException e) {
+				// This location has no solution, try the next
+			}
+		}
+		throw new InvalidBoardException("No location for a ship of size " + size + " in " + board.NAME);
+	}
+
 	//==========Difficulties==========//
 
 	public static void solveEasiest(Board board) throws PuzzleException {
@@ -77,12 +240,16 @@ public class Solver {
 		do {
 			do {
 				do {
-					solveEasy(board);
+					do {
+						solveEasy(board);
+						board.log.reset();
+						strategyFindSharedTiles(board);
+					} while (board.log.getChanged());
 					board.log.reset();
-					strategyFindSharedTiles(board);
+					strategyFillPartialLane(board);
 				} while (board.log.getChanged());
 				board.log.reset();
-				strategyFillPartialLane(board);
+				strategyLaneCapacity(board);
 			} while (board.log.getChanged());
 			board.log.reset();
 			strategySimpleLookAhead(board);
@@ -92,7 +259,7 @@ public class Solver {
 	//==========Strategies==========//
 
 	//-----Easiest-----//
-	private static void strategyFillLanes(Board board) throws InvalidMoveException {
+	private static void strategyFillLanes(Board board) throws PuzzleException {
 		for (int i = 0; i < board.SIZE; i++) {
 			fillLane(board, Lane.COL, i);
 			fillLane(board, Lane.ROW, i);
@@ -131,6 +298,9 @@ public class Solver {
 		for (int size = 2; size <= board.MAX_SHIP_SIZE; size++) {
 			placeSharedTiles(board, size);
 		}
+		for (int size = 1; size <= board.MAX_SHIP_SIZE; size++) {
+			placeSharedWater(board, size);
+		}
 	}
 
 	private static void strategyFillPartialLane(Board board) throws PuzzleException {
@@ -139,43 +309,101 @@ public class Solver {
 		}
 	}
 
+	private static void strategyLaneCapacity(Board board) throws PuzzleException {
+		int lanes = 2 * board.SIZE;
+		int[] free = laneFree(board);
+		int[][] lower = laneLowerBounds(board, free);
+		int[] need = new int[lanes];
+		for (int size = 1; size <= board.MAX_SHIP_SIZE; size++) {
+			for (int idx = 0; idx < lanes; idx++) need[idx] += size * lower[size][idx];
+		}
+		for (int idx = 0; idx < lanes; idx++) {
+			if (need[idx] > free[idx]) {
+				int lane = idx;
+				throw new InvalidBoardException(() -> "Lane " + lane + " cannot hold its ships\n" + board.toString());
+			}
+		}
+		// Every deduction is taken from the board as it is now, before any of them are made
+		ArrayList<Ship> forbidden = new ArrayList<>();
+		ArrayList<Ship> forced = new ArrayList<>();
+		BitSet ships = new BitSet(board.SIZE * board.SIZE);
+		BitSet water = new BitSet(board.SIZE * board.SIZE);
+		for (int size = 1; size <= board.MAX_SHIP_SIZE; size++) {
+			if (getMissingShips(board, size) <= 0) continue;
+			for (Ship ship : board.getShipList(size, false)) {
+				if (!fitsLaneCapacity(board, ship, free, need, lower[size])) forbidden.add(ship);
+			}
+			placeLaneShips(board, size, lower[size], forced, ships, water);
+		}
+		for (Ship ship : forbidden) {
+			if (forced.contains(ship)) throw new InvalidBoardException(() -> "No room for " + ship + "\n" + board.toString());
+			board.blacklist(ship);
+		}
+		for (Ship ship : forced) ship.confirm();
+		for (int idx = ships.nextSetBit(0); idx >= 0; idx = ships.nextSetBit(idx + 1)) {
+			if (board.tile(idx).isBlank()) board.tile(idx).setValue(Value.SHIP_UNID);
+		}
+		for (int idx = water.nextSetBit(0); idx >= 0; idx = water.nextSetBit(idx + 1)) {
+			if (board.tile(idx).isBlank()) board.tile(idx).setValue(Value.WATER);
+		}
+	}
+
 	private static void strategySimpleLookAhead(Board board) throws PuzzleException {
 		for (int size = 2; size <= board.MAX_SHIP_SIZE; size++) {
 			simpleLookAhead(board, size);
 		}
 	}
 
+	//-----Hard-----//
+	private static void strategyProbeTiles(Board board) throws PuzzleException {
+		for (Tile tile : probeOrder(board)) {
+			if (tile.isBlank() && probeTile(board, tile)) return;
+		}
+	}
+
 	//=========Strategy Components==========//
 
 	//-----Easiest-----//
 	/**
-	 * If possible, fills the remaining blank tiles in a row with WATER or SHIP_UNID
+	 * Fills the blank tiles in a lane that have the same value in every way to finish the lane, found by LanePatterns
 	 * @param board the puzzle Board being solved
 	 * @param lane whether the lane to fill is a ROW or COL
 	 * @param idx the index of the lane in the board, between 1 and Board.SIZE
-	 * @throws InvalidMoveException when filling the lane would cause an invalid move
+	 * @throws PuzzleException when the lane cannot be finished, or filling it would cause an invalid move
 	 */
-	private static void fillLane(Board board, Lane lane, int idx) throws InvalidMoveException {
+	private static void fillLane(Board board, Lane lane, int idx) throws PuzzleException {
 		// If row is full do nothing
 		if (!board.hasBlanks(lane, idx)) return;
-		// Else count tiles
-		int sumShip, sumWater, sumLane;
-		sumShip = board.getSumShip(lane, idx);
-		sumWater = board.getSumWater(lane, idx);
-		sumLane = board.getSum(lane, idx);
-		// Fill in water tiles
-		if (sumShip == sumLane) {
-			for (int i = 0; i < board.SIZE; i++) {
-				Tile tile = board.tile(lane, idx, i);
-				if (tile.getValue() == Value.BLANK) tile.setValue(Value.WATER);
-			}
+		if (board.SIZE > LanePatterns.MASK_SIZE) {
+			fillLongLane(board, lane, idx);
+			return;
 		}
-		// Fill in ship tiles
-		else if (sumWater == board.SIZE - sumLane) {
-			for (int i = 0; i < board.SIZE; i++) {
-				Tile tile = board.tile(lane, idx, i);
-				if (tile.getValue() == Value.BLANK) tile.setValue(Value.SHIP_UNID);
-			}
+		long forced = LanePatterns.deduce(board, lane, idx);
+		if (forced == LanePatterns.INFEASIBLE) {
+			throw new InvalidBoardException(() -> "Invalid Lane: " + lane + " " + idx + "\n" + board.toString());
+		}
+		for (int i = 0; i < board.SIZE; i++) {
+			Tile tile = board.tile(lane, idx, i);
+			if (tile.getValue() != Value.BLANK) continue;
+			if ((forced >>> 32 + i & 1) != 0) tile.setValue(Value.WATER);
+			else if ((forced >>> i & 1) != 0) tile.setValue(Value.SHIP_UNID);
+		}
+	}
+
+	/**
+	 * Fills a lane too long for the int masks of LanePatterns, using its BitSet form instead
+	 */
+	private static void fillLongLane(Board board, Lane lane, int idx) throws PuzzleException {
+		BitSet ship = new BitSet(board.SIZE);
+		BitSet water = new BitSet(board.SIZE);
+		if (!LanePatterns.deduce(board, lane, idx, ship, water)) {
+			throw new InvalidBoardException(() -> "Invalid Lane: " + lane + " " + idx + "\n" + board.toString());
+		}
+		for (int i = 0; i < board.SIZE; i++) {
+			Tile tile = board.tile(lane, idx, i);
+			if (tile.getValue() != Value.BLANK) continue;
+			if (water.get(i)) tile.setValue(Value.WATER);
+			else if (ship.get(i)) tile.setValue(Value.SHIP_UNID);
 		}
 	}
 
@@ -263,15 +491,9 @@ public class Solver {
 	 */
 	private static void identifyShip(Board board, Tile tile) throws InvalidMoveException {
 		if (tile.getValue() == Value.SHIP_UNID) {
-			Ship possible = null;
-			for (Ship ship : board.getShipList(false)) {
-				if (ship.tiles().contains(tile)) {
-					if (possible == null) possible = ship;
-					else return;
-				}
-			}
-			if (possible != null) {
-				possible.confirm();
+			ArrayList<Ship> covering = board.getCovering(tile);
+			if (covering.size() == 1) {
+				covering.get(0).confirm();
 			}
 		}
 	}
@@ -285,23 +507,37 @@ public class Solver {
 	 * @throws PuzzleException if setting that shared Tile to the determined value causes the Board to be invalid
 	 */
 	private static void placeSharedTiles(Board board, int size) throws PuzzleException {
-		ArrayList<Tile> tileList = new ArrayList<>();
+		int placements = board.getShipList(size, false).size();
+		if (placements == 0) return;
+		// Tiles covered by every placement, all found before any is set so the counts stay those of the same placements
+		BitSet shared = new BitSet(board.SIZE * board.SIZE);
+		for (int idx = 0; idx < board.SIZE * board.SIZE; idx++) {
+			if (board.getCoverCount(board.tile(idx), size) == placements) shared.set(idx);
+		}
+		for (int idx = shared.nextSetBit(0); idx >= 0; idx = shared.nextSetBit(idx + 1)) {
+			board.tile(idx).setValue(Value.SHIP_UNID);
+		}
+	}
+
+	/**
+	 * If the board is missing a ship of a certain size, and a tile touches every potential location for that size ship,
+	 * then that tile must be water
+	 * @param board - The puzzle Board being solved
+	 * @param size - The size of the ship to check
+	 * @throws PuzzleException if setting that shared Tile to water causes the Board to be invalid
+	 */
+	private static void placeSharedWater(Board board, int size) throws PuzzleException {
+		if (getMissingShips(board, size) < 1) return;
 		ArrayList<Ship> shipList = board.getShipList(size, false);
-		for (Ship ship : shipList) {
-			for (Tile tile : ship.tiles()) {
-				if (!tileList.contains(tile)) tileList.add(tile);
-			}
+		if (shipList.isEmpty()) return;
+		// Tiles in the halo of every placement
+		BitSet shared = (BitSet) shipList.get(0).haloMask().clone();
+		for (int i = 1; i < shipList.size() && !shared.isEmpty(); i++) {
+			shared.and(shipList.get(i).haloMask());
 		}
-		boolean shared;
-		for (Tile tile : tileList) {
-			shared = true;
-			for (Ship ship : shipList) {
-				if (!ship.tiles().contains(tile)) {
-					shared = false;
-					break;
-				}
-			}
-			if (shared) tile.setValue(Value.SHIP_UNID);
+		for (int idx = shared.nextSetBit(0); idx >= 0; idx = shared.nextSetBit(idx + 1)) {
+			Tile tile = board.tile(idx);
+			if (!tile.isWater()) tile.setValue(Value.WATER);
 		}
 	}
 
@@ -315,44 +551,147 @@ public class Solver {
 	private static void fillPartialLane(Board board, int size) throws InvalidMoveException {
 		ArrayList<Ship> shipList = board.getShipList(size, false);
 		if (shipList.size() == 0) return;
-		ArrayList<Tile> tileList = new ArrayList<>();
+		// Tiles touched by any placement
+		BitSet union = new BitSet(board.SIZE * board.SIZE);
 		for (Ship ship : shipList) {
-			for (Tile tile : ship.tiles()) {
-				if (!tileList.contains(tile)) tileList.add(tile);
-			}
+			union.or(ship.mask());
 		}
-		boolean sameRow = true;
-		boolean sameCol = true;
-		for (Tile tile : tileList) {
-			if (tile.ROW != tileList.get(0).ROW) sameRow = false;
-			if (tile.COL != tileList.get(0).COL) sameCol = false;
-		}
-		if (!sameRow && !sameCol) return;
+		Tile first = board.tile(union.nextSetBit(0));
 		Lane lane;
 		int idx;
-		if (sameRow) {
+		if (isSubset(union, board.laneMask(Lane.ROW, first.ROW))) {
 			lane = Lane.ROW;
-			idx = tileList.get(0).ROW;
-		} else {
+			idx = first.ROW;
+		} else if (isSubset(union, board.laneMask(Lane.COL, first.COL))) {
 			lane = Lane.COL;
-			idx = tileList.get(0).COL;
-		}
+			idx = first.COL;
+		} else return;
+		BitSet rest = (BitSet) board.laneMask(lane, idx).clone();
+		rest.andNot(union);
 		int count = 0;
-		Tile tile;
-		ArrayList<Tile> blankList = new ArrayList<>();
-		for (int i = 0; i < board.SIZE; i++) {
-			tile = board.tile(lane, idx, i);
-			if (!tileList.contains(tile)) {
-				if (tile.isBlank()) blankList.add(tile);
-				if (tile.isShip()) count++;
-			}
+		for (int i = rest.nextSetBit(0); i >= 0; i = rest.nextSetBit(i + 1)) {
+			if (board.tile(i).isShip()) count++;
 		}
 		if (board.getSum(lane, idx) - count - size * getMissingShips(board, size) == 0) {
-			for (Tile blank : blankList) {
-				blank.setValue(Value.WATER);
+			for (int i = rest.nextSetBit(0); i >= 0; i = rest.nextSetBit(i + 1)) {
+				Tile blank = board.tile(i);
+				if (blank.isBlank()) blank.setValue(Value.WATER);
 			}
 		}
+	}
 
+	/**
+	 * Finds how many ships of each size every lane must hold. A lane holds no more ships of a size along it than fit in
+	 * the ship tiles it has left outside complete ships, nor more than can be picked from its potential locations
+	 * without touching. Every ship longer than one tile lies along exactly one lane, and every submarine in exactly one
+	 * row and one column, so the missing ships that the other lanes cannot hold must be in this one
+	 * @param board - The puzzle Board being solved
+	 * @param free - The ship tiles left in each lane outside complete ships, indexed by laneIndex
+	 * @return The fewest ships of each size along each lane, indexed by size then laneIndex
+	 * @throws PuzzleException if the lanes cannot hold the missing ships
+	 */
+	private static int[][] laneLowerBounds(Board board, int[] free) throws PuzzleException {
+		int lanes = 2 * board.SIZE;
+		int[][] lower = new int[board.MAX_SHIP_SIZE + 1][lanes];
+		int[] packed = new int[lanes];
+		int[] lastEnd = new int[lanes];
+		int[] upper = new int[lanes];
+		for (int size = 1; size <= board.MAX_SHIP_SIZE; size++) {
+			int missing = getMissingShips(board, size);
+			if (missing <= 0) continue;
+			Arrays.fill(packed, 0);
+			Arrays.fill(lastEnd, -2);
+			// Locations come in order along each lane, so taking each that clears the last one taken packs the most
+			for (Ship ship : board.getShipList(size, false)) {
+				for (Lane lane : Lane.values()) {
+					if (size > 1 && ship.lane() != lane) continue;
+					int idx = laneIndex(board, lane, ship.start());
+					int start = lane == Lane.ROW ? ship.start().COL : ship.start().ROW;
+					if (start >= lastEnd[idx] + 2) {
+						packed[idx]++;
+						lastEnd[idx] = start + size - 1;
+					}
+				}
+			}
+			for (int idx = 0; idx < lanes; idx++) upper[idx] = Math.min(free[idx] / size, packed[idx]);
+			// Submarines are counted once over the rows and once over the columns
+			int groups = size == 1 ? 2 : 1;
+			int span = lanes / groups;
+			for (int group = 0; group < groups; group++) {
+				int total = 0;
+				for (int idx = group * span; idx < (group + 1) * span; idx++) total += upper[idx];
+				if (total < missing) {
+					int shipSize = size;
+					throw new InvalidBoardException(() -> "No room for the ships of size " + shipSize + "\n" + board.toString());
+				}
+				for (int idx = group * span; idx < (group + 1) * span; idx++) {
+					lower[size][idx] = Math.max(missing - (total - upper[idx]), 0);
+				}
+			}
+		}
+		return lower;
+	}
+
+	/**
+	 * Checks if a potential ship location leaves every lane it crosses enough tiles for the ships that lane must hold
+	 * @param board - The puzzle Board being solved
+	 * @param ship - The ship location
+	 * @param free - The ship tiles left in each lane outside complete ships, indexed by laneIndex
+	 * @param need - The tiles taken by the ships each lane must hold, indexed by laneIndex
+	 * @param lower - The fewest ships of this size along each lane, indexed by laneIndex
+	 * @return False if the ship cannot go there
+	 */
+	private static boolean fitsLaneCapacity(Board board, Ship ship, int[] free, int[] need, int[] lower) {
+		int size = ship.size();
+		for (Tile tile : ship.tiles()) {
+			for (Lane lane : Lane.values()) {
+				int idx = laneIndex(board, lane, tile);
+				if (size == 1 || ship.lane() == lane) {
+					// Along its own lane the ship counts towards the ships of its size, once
+					if (tile != ship.start()) continue;
+					if (need[idx] + (lower[idx] == 0 ? size : 0) > free[idx]) return false;
+				} else if (need[idx] + 1 > free[idx]) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * For each lane that must hold a ship of a size, confirms its locations for that size if it must hold all of them,
+	 * and otherwise marks the tiles that every location covers as ships and the tiles that touch every location as water
+	 * @param board - The puzzle Board being solved
+	 * @param size - The size of the ship to check
+	 * @param lower - The fewest ships of this size along each lane, indexed by laneIndex
+	 * @param forced - Collects the ships to confirm
+	 * @param ships - Collects the tiles that must be ships
+	 * @param water - Collects the tiles that must be water
+	 */
+	private static void placeLaneShips(Board board, int size, int[] lower, ArrayList<Ship> forced, BitSet ships,
+									   BitSet water) {
+		ArrayList<Ship> shipList = board.getShipList(size, false);
+		ArrayList<Ship> inLane = new ArrayList<>();
+		for (int idx = 0; idx < lower.length; idx++) {
+			if (lower[idx] == 0) continue;
+			Lane lane = idx < board.SIZE ? Lane.ROW : Lane.COL;
+			inLane.clear();
+			for (Ship ship : shipList) {
+				if ((size == 1 || ship.lane() == lane) && laneIndex(board, lane, ship.start()) == idx) inLane.add(ship);
+			}
+			if (inLane.size() <= lower[idx]) {
+				forced.addAll(inLane);
+				continue;
+			}
+			BitSet covered = (BitSet) inLane.get(0).mask().clone();
+			BitSet touched = (BitSet) inLane.get(0).haloMask().clone();
+			for (int i = 1; i < inLane.size(); i++) {
+				covered.and(inLane.get(i).mask());
+				touched.and(inLane.get(i).haloMask());
+			}
+			ships.or(covered);
+			water.or(touched);
+		}
 	}
 
 	/**
@@ -364,24 +703,194 @@ public class Solver {
 	 */
 	private static void simpleLookAhead (Board board, int size) throws PuzzleException {
 		if (getMissingShips(board,size) <= 2) {
-			Board clone;
 			ArrayList<Ship> shipList = board.getShipList(size,false);
 			if (shipList.size() <= 4) {
+				HashMap<Ship, int[]> cache = board.lookAheadCache();
+				int fleet = fleetSignature(board);
 				for (Ship ship : shipList) {
-					clone = board.cloneBoard();
-					clone.getShipList(size, false).get(clone.getShipList(size, false).indexOf(ship)).confirm();
-					try {
-						solveEasiest(clone);
-						validateLaneCount(clone);
-						validateShipCount(clone);
-					} catch (PuzzleException e) {
+					int[] passed = cache.get(ship);
+					if (passed != null && passed[1] == fleet && !changedNear(board, passed)) continue;
+					LookAheadEvent event = Recording.isActive() ? new LookAheadEvent() : null;
+					if (event != null) event.begin();
+					int[] entry = lookAhead(board, ship, fleet);
+					if (entry != null) {
+						cache.put(ship, entry);
+					} else {
+						cache.remove(ship);
 						board.blacklist(ship);
+						if (event != null) event.contradiction = true;
+					}
+					if (event != null && event.shouldCommit()) {
+						event.puzzle = board.NAME;
+						event.ship = ship.toString();
+						event.commit();
 					}
 				}
 			}
 		}
 	}
 
+	/**
+	 * Confirms a ship location and applies the easiest strategies, then undoes every change from the Board's trail, the
+	 * same way probeFails tests a tile. This leaves the Board as it was without copying it for each location
+	 * @param board - The puzzle Board being solved
+	 * @param ship - The unconfirmed ship location to test
+	 * @param fleet - The fleet signature of the board
+	 * @return The look ahead result to cache, or null if the location leads to a contradiction
+	 */
+	private static int[] lookAhead(Board board, Ship ship, int fleet) {
+		int version = board.getVersion();
+		Logger log = board.log;
+		board.log = new Logger();
+		board.beginTrail();
+		try {
+			ship.confirm();
+			solveEasiest(board);
+			validateLaneCount(board);
+			validateShipCount(board);
+			return lookAheadEntry(board, version, fleet);
+		} catch (PuzzleException e) {
+			return null;
+		} finally {
+			board.rollbackTrail();
+			board.log = log;
+		}
+	}
+
+	/**
+	 * Tentatively sets a blank tile to water, and then to a ship, applying the easiest strategies after each. If one
+	 * value leads to a contradiction, the tile is set to the other
+	 * @param board - The puzzle Board being solved
+	 * @param tile - The blank tile to probe
+	 * @return True if the tile was set
+	 * @throws PuzzleException if both values lead to a contradiction
+	 */
+	private static boolean probeTile(Board board, Tile tile) throws PuzzleException {
+		if (probeFails(board, tile, Value.WATER)) {
+			if (probeFails(board, tile, Value.SHIP_UNID)) {
+				throw new InvalidBoardException(() -> "Probe: no value fits " + tile + "\n" + board.toString());
+			}
+			tile.setValue(Value.SHIP_UNID);
+			return true;
+		}
+		if (probeFails(board, tile, Value.SHIP_UNID)) {
+			tile.setValue(Value.WATER);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Sets a tile and applies the easiest strategies, then undoes every change from the Board's trail. The changes are
+	 * logged to a scratch Logger so the Board's own log and changed flag are left alone
+	 * @param board - The puzzle Board being solved
+	 * @param tile - The blank tile to probe
+	 * @param value - The value to try
+	 * @return True if the value leads to a contradiction
+	 */
+	private static boolean probeFails(Board board, Tile tile, Value value) {
+		Logger log = board.log;
+		board.log = new Logger();
+		board.beginTrail();
+		try {
+			tile.setValue(value);
+			solveEasiest(board);
+			validateLaneCount(board);
+			validateShipCount(board);
+			return false;
+		} catch (PuzzleException e) {
+			return true;
+		} finally {
+			board.rollbackTrail();
+			board.log = log;
+		}
+	}
+
+	/**
+	 * Orders the blank tiles so the most constrained are probed first. A lane is constrained when the ship tiles it
+	 * still needs are close to none or close to all of its blanks, and a tile scores the slack of its row plus its
+	 * column
+	 * @param board - The puzzle Board being solved
+	 * @return The blank tiles, lowest slack first
+	 */
+	private static ArrayList<Tile> probeOrder(Board board) {
+		int[][] slack = new int[2][board.SIZE];
+		for (Lane lane : Lane.values()) {
+			for (int idx = 0; idx < board.SIZE; idx++) {
+				int blanks = 0;
+				int ships = 0;
+				for (int i = 0; i < board.SIZE; i++) {
+					Tile tile = board.tile(lane, idx, i);
+					if (tile.isBlank()) blanks++;
+					else if (tile.isShip()) ships++;
+				}
+				int needed = board.getSum(lane, idx) - ships;
+				slack[lane.ordinal()][idx] = Math.min(needed, blanks - needed);
+			}
+		}
+		ArrayList<Tile> order = new ArrayList<>();
+		for (int idx = 0; idx < board.SIZE * board.SIZE; idx++) {
+			if (board.tile(idx).isBlank()) order.add(board.tile(idx));
+		}
+		order.sort((a, b) -> Integer.compare(slack[Lane.ROW.ordinal()][a.ROW] + slack[Lane.COL.ordinal()][a.COL],
+				slack[Lane.ROW.ordinal()][b.ROW] + slack[Lane.COL.ordinal()][b.COL]));
+		return order;
+	}
+
+	/**
+	 * Records a ship location that passed look ahead, with the lanes a later change must stay out of for the result to
+	 * hold. The board is at a fixpoint of the easiest strategies when look ahead runs, so the trial only differs from it
+	 * in the lanes the trial changed. Those strategies act along a lane or on the tiles next to a tile, so a change can
+	 * only meet the trial's deductions if it is in one of those lanes or the lanes beside them. Any other change would
+	 * have been deduced the same way without the ship, and the board was already consistent with it
+	 * @param board - The puzzle Board being solved, with the ship confirmed and the easiest strategies applied
+	 * @param version - The version of the board before the ship was confirmed
+	 * @param fleet - The fleet signature of the board
+	 * @return The version and fleet signature, followed by the lanes to check as bits in laneIndex order
+	 */
+	private static int[] lookAheadEntry(Board board, int version, int fleet) {
+		int[] entry = new int[2 + (2 * board.SIZE + 31) / 32];
+		entry[0] = version;
+		entry[1] = fleet;
+		for (Lane lane : Lane.values()) {
+			int base = lane == Lane.ROW ? 0 : board.SIZE;
+			for (int idx = 0; idx < board.SIZE; idx++) {
+				if (board.getLaneVersion(lane, idx) <= version) continue;
+				for (int near = Math.max(idx - 1, 0); near <= Math.min(idx + 1, board.SIZE - 1); near++) {
+					entry[2 + (base + near) / 32] |= 1 << ((base + near) % 32);
+				}
+			}
+		}
+		return entry;
+	}
+
+	/**
+	 * Checks if any lane recorded with a look ahead result has changed since the result was found
+	 * @param board - The puzzle Board being solved
+	 * @param entry - The cached result, from lookAheadEntry
+	 * @return True if a tile in one of those lanes changed after the version of the result
+	 */
+	private static boolean changedNear(Board board, int[] entry) {
+		for (int idx = 0; idx < 2 * board.SIZE; idx++) {
+			if ((entry[2 + idx / 32] & (1 << (idx % 32))) == 0) continue;
+			Lane lane = idx < board.SIZE ? Lane.ROW : Lane.COL;
+			if (board.getLaneVersion(lane, idx % board.SIZE) > entry[0]) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Gets a number that changes whenever the number of complete ships of any size changes, since a complete ship
+	 * anywhere on the board can break the fleet count in a look ahead
+	 */
+	private static int fleetSignature(Board board) {
+		int signature = 0;
+		for (int size = 1; size <= board.MAX_SHIP_SIZE; size++) {
+			signature = signature * 31 + board.getShipList(size, true).size();
+		}
+		return signature;
+	}
+
 	//=========Helper Functions==========//
 
 	public static boolean isComplete(Board board) {
@@ -396,8 +905,40 @@ public class Solver {
 		return true;
 	}
 
+	/**
+	 * Gets the ship tiles each lane has left outside complete ships
+	 * @param board - The puzzle Board being solved
+	 * @return The number of tiles, indexed by laneIndex
+	 */
+	private static int[] laneFree(Board board) {
+		int[] free = new int[2 * board.SIZE];
+		for (Lane lane : Lane.values()) {
+			for (int idx = 0; idx < board.SIZE; idx++) free[lane == Lane.ROW ? idx : board.SIZE + idx] = board.getSum(lane, idx);
+		}
+		for (Ship ship : board.getShipList(true)) {
+			for (Tile tile : ship.tiles()) {
+				free[tile.ROW]--;
+				free[board.SIZE + tile.COL]--;
+			}
+		}
+		return free;
+	}
+
+	/**
+	 * Numbers the rows from 0 and the columns after them, so both can share one array
+	 */
+	private static int laneIndex(Board board, Lane lane, Tile tile) {
+		return lane == Lane.ROW ? tile.ROW : board.SIZE + tile.COL;
+	}
+
+	private static boolean isSubset(BitSet set, BitSet of) {
+		BitSet outside = (BitSet) set.clone();
+		outside.andNot(of);
+		return outside.isEmpty();
+	}
+
 	public static int getMissingShips(Board board, int size) {
-		return board.MAX_SHIP_SIZE - size + 1 - board.getShipList(size,true).size();
+		return board.getMissingShips(size);
 	}
 
 	private static void validateLaneCount(Board board) throws PuzzleException {
@@ -409,16 +950,28 @@ public class Solver {
 				sumWater = board.getSumWater(lane, idx);
 				sumLane = board.getSum(lane, idx);
 				if ((sumShip > sumLane) | (board.SIZE - sumWater < sumLane)) {
-					throw new InvalidBoardException("Invalid Lane: " + lane + " " + idx + "\n" + board.toString());
+					Lane invalid = lane;
+					int index = idx;
+					throw new InvalidBoardException(() -> "Invalid Lane: " + invalid + " " + index + "\n" + board.toString());
 				}
 			}
 		}
 	}
 
+	private static void validateFleet(Board board) throws PuzzleException {
+		for (int size = 1; size <= board.MAX_SHIP_SIZE; size++) {
+			if (board.getShipList(size,true).size() != board.getFleet(size)) {
+				int invalid = size;
+				throw new InvalidBoardException(() -> "Invalid Ship Total: size " + invalid + "\n" + board.toString());
+			}
+		}
+	}
+
 	private static void validateShipCount(Board board) throws PuzzleException {
 		for (int size = 1; size <= board.MAX_SHIP_SIZE; size++) {
-			if (board.getShipList(size,true).size() > (board.MAX_SHIP_SIZE - size + 1)) {
-				throw new InvalidBoardException("Invalid Ship Total: size " + size + "\n" + board.toString());
+			if (board.getShipList(size,true).size() > board.getFleet(size)) {
+				int invalid = size;
+				throw new InvalidBoardException(() -> "Invalid Ship Total: size " + invalid + "\n" + board.toString());
 			}
 		}
 	}
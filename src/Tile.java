@@ -3,12 +3,30 @@ import Enums.Value;
 import Exceptions.InvalidMoveException;
 
 import java.io.Serializable;
+import java.util.Arrays;
 
 /**
  * Created by Matt on 7/29/2017.
  */
 public class Tile implements Serializable {
 
+	// Neighbor directions for each value, shared to avoid allocating on every update
+	private static final Dir[] NONE = {};
+	private static final Dir[] NORTH = {Dir.NORTH};
+	private static final Dir[] SOUTH = {Dir.SOUTH};
+	private static final Dir[] EAST = {Dir.EAST};
+	private static final Dir[] WEST = {Dir.WEST};
+	private static final Dir[] EAST_WEST = {Dir.EAST, Dir.WEST};
+	private static final Dir[] NORTH_SOUTH = {Dir.NORTH, Dir.SOUTH};
+	private static final Dir[] DIAGONAL = {Dir.NORTHEAST, Dir.NORTHWEST, Dir.SOUTHEAST, Dir.SOUTHWEST};
+	private static final Dir[] WATER_MID_H = {Dir.NORTH, Dir.SOUTH, Dir.NORTHEAST, Dir.NORTHWEST, Dir.SOUTHEAST, Dir.SOUTHWEST};
+	private static final Dir[] WATER_MID_V = {Dir.EAST, Dir.WEST, Dir.NORTHEAST, Dir.NORTHWEST, Dir.SOUTHEAST, Dir.SOUTHWEST};
+	private static final Dir[] WATER_SUB = {Dir.NORTH, Dir.SOUTH, Dir.EAST, Dir.WEST, Dir.NORTHEAST, Dir.NORTHWEST, Dir.SOUTHEAST, Dir.SOUTHWEST};
+	private static final Dir[] WATER_NORTH = {Dir.NORTH, Dir.EAST, Dir.WEST, Dir.NORTHEAST, Dir.NORTHWEST, Dir.SOUTHEAST, Dir.SOUTHWEST};
+	private static final Dir[] WATER_SOUTH = {Dir.SOUTH, Dir.EAST, Dir.WEST, Dir.NORTHEAST, Dir.NORTHWEST, Dir.SOUTHEAST, Dir.SOUTHWEST};
+	private static final Dir[] WATER_EAST = {Dir.NORTH, Dir.SOUTH, Dir.EAST, Dir.NORTHEAST, Dir.NORTHWEST, Dir.SOUTHEAST, Dir.SOUTHWEST};
+	private static final Dir[] WATER_WEST = {Dir.NORTH, Dir.SOUTH, Dir.WEST, Dir.NORTHEAST, Dir.NORTHWEST, Dir.SOUTHEAST, Dir.SOUTHWEST};
+
 	final Board BOARD;
 	final int ROW;
 	final int COL;
@@ -72,6 +90,14 @@ public class Tile implements Serializable {
 
 	//========== Methods ==========//
 
+	/**
+	 * Gets the position of this Tile as a single index into the parent Board, used for footprint masks
+	 * @return ROW * SIZE + COL
+	 */
+	int index() {
+		return ROW * BOARD.SIZE + COL;
+	}
+
 	/**
 	 * Check if this Tile has been confirmed to contain a ship piece
 	 * @return True if yes, otherwise false
@@ -111,15 +137,9 @@ public class Tile implements Serializable {
 	 * @throws InvalidMoveException if the new value is not a valid move
 	 */
 	void setValue(Value val) throws InvalidMoveException {
-		tryValue(val);
-		for (Dir dir : getWaterDirections()) {
-			Tile tile = getNeighbor(dir);
-			if (tile != null) tile.tryValue(Value.WATER);
-		}
-		for (Dir dir : getShipDirections()) {
-			Tile tile = getNeighbor(dir);
-			if (tile != null && !Tile.isShip(tile)) tile.setValue(Value.SHIP_UNID);
-		}
+		Worklist worklist = BOARD.worklist();
+		worklist.push(this, val);
+		worklist.run();
 	}
 
 	/**
@@ -130,33 +150,38 @@ public class Tile implements Serializable {
 		return value;
 	}
 
+	/**
+	 * Sets this Tile's value directly, without checking the move or updating neighboring tiles. Used to restore a value
+	 * that is already known to be consistent with the rest of the Board
+	 * @param val - The value to restore
+	 */
+	void restoreValue(Value val) {
+		if (value != val) {
+			BOARD.modified(this);
+			value = val;
+		}
+	}
+
 	/**
 	 * Gets the neighboring Tile in the specified direction
 	 * @param dir - The direction of the desired neighbor
 	 * @return The neighboring Tile if it is within bounds, otherwise null
 	 */
 	Tile getNeighbor(Dir dir) {
-		try {
-			switch (dir) {
-				case NORTH:
-					return BOARD.TILES[ROW - 1][COL];
-				case SOUTH:
-					return BOARD.TILES[ROW + 1][COL];
-				case EAST:
-					return BOARD.TILES[ROW][COL + 1];
-				case WEST:
-					return BOARD.TILES[ROW][COL - 1];
-				case NORTHEAST:
-					return BOARD.TILES[ROW - 1][COL + 1];
-				case NORTHWEST:
-					return BOARD.TILES[ROW - 1][COL - 1];
-				case SOUTHEAST:
-					return BOARD.TILES[ROW + 1][COL - 1];
-				case SOUTHWEST:
-					return BOARD.TILES[ROW + 1][COL + 1];
-			}
-			return null;
-		} catch	(ArrayIndexOutOfBoundsException e) {return null;}
+		int row = ROW;
+		int col = COL;
+		switch (dir) {
+			case NORTH: row--; break;
+			case SOUTH: row++; break;
+			case EAST: col++; break;
+			case WEST: col--; break;
+			case NORTHEAST: row--; col++; break;
+			case NORTHWEST: row--; col--; break;
+			case SOUTHEAST: row++; col++; break;
+			case SOUTHWEST: row++; col--; break;
+		}
+		if (row < 0 || col < 0 || row >= BOARD.SIZE || col >= BOARD.SIZE) return null;
+		return BOARD.TILES[row][col];
 	}
 
 	/**
@@ -194,65 +219,66 @@ public class Tile implements Serializable {
 	}
 
 	/**
-	 * Gets the direction of neighboring Tiles that must contain water based on this Tile's value
+	 * Gets the direction of neighboring Tiles that must contain water based on this Tile's value. The returned array is
+	 * shared and must not be modified
 	 * @return An array of directions
 	 */
 	Dir[] getWaterDirections() {
 		switch (value) {
 			case SHIP_UNID:
-				return new Dir[] {Dir.NORTHEAST, Dir.NORTHWEST, Dir.SOUTHEAST, Dir.SOUTHWEST};
 			case SHIP_MID:
-				return new Dir[] {Dir.NORTHEAST, Dir.NORTHWEST, Dir.SOUTHEAST, Dir.SOUTHWEST};
+				return DIAGONAL;
 			case SHIP_MID_H:
-				return new Dir[] {Dir.NORTH, Dir.SOUTH, Dir.NORTHEAST, Dir.NORTHWEST, Dir.SOUTHEAST, Dir.SOUTHWEST};
+				return WATER_MID_H;
 			case SHIP_MID_V:
-				return new Dir[] {Dir.EAST, Dir.WEST, Dir.NORTHEAST, Dir.NORTHWEST, Dir.SOUTHEAST, Dir.SOUTHWEST};
+				return WATER_MID_V;
 			case SHIP_SUB:
-				return new Dir[] {Dir.NORTH, Dir.SOUTH, Dir.EAST, Dir.WEST, Dir.NORTHEAST, Dir.NORTHWEST, Dir.SOUTHEAST, Dir.SOUTHWEST};
+				return WATER_SUB;
 			case SHIP_NORTH:
-				return new Dir[] {Dir.NORTH, Dir.EAST, Dir.WEST, Dir.NORTHEAST, Dir.NORTHWEST, Dir.SOUTHEAST, Dir.SOUTHWEST};
+				return WATER_NORTH;
 			case SHIP_SOUTH:
-				return new Dir[] {Dir.SOUTH, Dir.EAST, Dir.WEST, Dir.NORTHEAST, Dir.NORTHWEST, Dir.SOUTHEAST, Dir.SOUTHWEST};
+				return WATER_SOUTH;
 			case SHIP_EAST:
-				return new Dir[] {Dir.NORTH, Dir.SOUTH, Dir.EAST, Dir.NORTHEAST, Dir.NORTHWEST, Dir.SOUTHEAST, Dir.SOUTHWEST};
+				return WATER_EAST;
 			case SHIP_WEST:
-				return new Dir[] {Dir.NORTH, Dir.SOUTH, Dir.WEST, Dir.NORTHEAST, Dir.NORTHWEST, Dir.SOUTHEAST, Dir.SOUTHWEST};
+				return WATER_WEST;
 			default:
-				return new Dir[0];
+				return NONE;
 		}
 	}
 
-	/*========== Private Functions ==========*/
-
 	/**
-	 * Gets the direction of neighboring Tiles that must contain ship pieces
+	 * Gets the direction of neighboring Tiles that must contain ship pieces. The returned array is shared and must not
+	 * be modified
 	 * @return An array of directions
 	 */
-	private Dir[] getShipDirections() {
+	Dir[] getShipDirections() {
 		switch (value) {
 			case SHIP_NORTH:
-				return new Dir[] {Dir.SOUTH};
+				return SOUTH;
 			case SHIP_SOUTH:
-				return new Dir[] {Dir.NORTH};
+				return NORTH;
 			case SHIP_EAST:
-				return new Dir[] {Dir.WEST};
+				return WEST;
 			case SHIP_WEST:
-				return new Dir[] {Dir.EAST};
+				return EAST;
 			case SHIP_MID_H:
-				return new Dir[] {Dir.EAST, Dir.WEST};
+				return EAST_WEST;
 			case SHIP_MID_V:
-				return new Dir[] {Dir.NORTH, Dir.SOUTH};
+				return NORTH_SOUTH;
 			default:
-				return new Dir[0];
+				return NONE;
 		}
 	}
 
+	/*========== Private Functions ==========*/
+
 	/**
 	 * Attempts to change this Tile to a new value
 	 * @param val - the value to change this Tile to
 	 * @throws InvalidMoveException if the new value is not a valid move
 	 */
-	private void tryValue(Value val) throws InvalidMoveException {
+	void tryValue(Value val) throws InvalidMoveException {
 		boolean valid = true;
 		boolean overwrite = true;
 		switch (this.value) {
@@ -273,8 +299,12 @@ public class Tile implements Serializable {
 				if (this.value != val && val != Value.SHIP_UNID) valid = false;
 				overwrite = false;
 		}
-		if (!valid) throw new InvalidMoveException("Invalid move at (" + ROW + "," + COL + "): Change value from " + val + " to " + val);
+		if (!valid) {
+			Value from = this.value;
+			throw new InvalidMoveException(() -> "Invalid move at (" + ROW + "," + COL + "): Change value from " + from + " to " + val);
+		}
 		if (overwrite) {
+			BOARD.modified(this);
 			if (BOARD.log != null) {
 				BOARD.log.setChanged();
 				BOARD.log.record(String.format("Changed tile at %s from %s to %s\n",this,value,val));
@@ -287,4 +317,74 @@ public class Tile implements Serializable {
 	public String toString() {
 		return "[" + ROW + "," + COL + "]";
 	}
+
+	/**
+	 * A stack of pending tile updates for a single Board. Setting a value pushes the implied ship pieces onto the stack
+	 * instead of recursing, so a long chain of updates runs in a single loop. Each Board owns one Worklist, reused for
+	 * every update
+	 */
+	static class Worklist {
+		private Tile[] tiles;		// The tiles waiting to be updated
+		private Value[] values;		// The value to give each waiting tile
+		private int count;			// The number of updates waiting
+
+		Worklist(int capacity) {
+			tiles = new Tile[capacity];
+			values = new Value[capacity];
+		}
+
+		/**
+		 * Adds an update to be made on the next run
+		 * @param tile - The tile to update
+		 * @param val - The value to give the tile
+		 */
+		void push(Tile tile, Value val) {
+			if (count == tiles.length) {
+				tiles = Arrays.copyOf(tiles, count * 2);
+				values = Arrays.copyOf(values, count * 2);
+			}
+			tiles[count] = tile;
+			values[count] = val;
+			count++;
+		}
+
+		/**
+		 * Makes every waiting update, along with the water and ship pieces each one implies. The stack is cleared even if
+		 * an update is invalid
+		 * @throws InvalidMoveException if any update is not a valid move
+		 */
+		void run() throws InvalidMoveException {
+			try {
+				while (count > 0) {
+					count--;
+					Tile tile = tiles[count];
+					Value val = values[count];
+					tiles[count] = null;
+					if (val == Value.SHIP_UNID && tile.isShip()) continue;
+					tile.tryValue(val);
+					for (Dir dir : tile.getWaterDirections()) {
+						Tile neighbor = tile.getNeighbor(dir);
+						if (neighbor != null && !neighbor.isWater()) neighbor.tryValue(Value.WATER);
+					}
+					for (Dir dir : tile.getShipDirections()) {
+						Tile neighbor = tile.getNeighbor(dir);
+						if (neighbor != null && !neighbor.isShip() && !queued(neighbor)) push(neighbor, Value.SHIP_UNID);
+					}
+				}
+			} finally {
+				while (count > 0) tiles[--count] = null;
+			}
+		}
+
+		/**
+		 * Checks if a tile is already waiting to be updated, so it is not first set to an unidentified ship part and
+		 * then to the piece it was queued with
+		 */
+		private boolean queued(Tile tile) {
+			for (int i = 0; i < count; i++) {
+				if (tiles[i] == tile) return true;
+			}
+			return false;
+		}
+	}
 }
@@ -0,0 +1,216 @@
+import Enums.Dir;
+import Enums.Lane;
+import Enums.Value;
+import Exceptions.InvalidBoardException;
+
+/**
+ * The Validator class checks puzzles and solutions from outside the program before any work is spent on them. Both
+ * checks look at each tile a fixed number of times, so they cost far less than a single strategy pass.
+ *
+ * validate rejects a puzzle that cannot have a solution for a reason visible at a glance: lane sums that do not add
+ * up to the fleet, a lane with more ship tiles than its sum or too few tiles left to reach it, a ship larger than the
+ * Board, or two clues that cannot be neighbors. A puzzle that passes may still have no solution.
+ *
+ * checkSolution accepts a finished grid only if every lane has its sum, every pair of neighbors fits together and the
+ * ships it holds are exactly the fleet.
+ */
+class Validator {
+
+	//========== State ==========//
+
+	private static final Dir[] DIRS = Dir.values();
+	private static final Dir[] FORWARD = {Dir.EAST, Dir.SOUTH, Dir.SOUTHEAST, Dir.SOUTHWEST};	// Each pair of neighbors once
+
+	//========== Static Functions ==========//
+
+	/**
+	 * Checks a puzzle for mistakes that rule out any solution
+	 * @param board - The puzzle Board, which is not changed
+	 * @throws InvalidBoardException if the puzzle cannot have a solution
+	 */
+	static void validate(Board board) throws InvalidBoardException {
+		int size = board.SIZE;
+		int fleetTiles = 0;
+		for (int length = 1; length <= board.MAX_SHIP_SIZE; length++) fleetTiles += length * board.getFleet(length);
+		if (board.MAX_SHIP_SIZE > size && board.getFleet(board.MAX_SHIP_SIZE) > 0) {
+			throw new InvalidBoardException(board.NAME + ": a ship of size " + board.MAX_SHIP_SIZE + " does not fit");
+		}
+		int rowTotal = 0;
+		int colTotal = 0;
+		for (int i = 0; i < size; i++) {
+			rowTotal += board.getSum(Lane.ROW, i);
+			colTotal += board.getSum(Lane.COL, i);
+		}
+		if (rowTotal != colTotal) {
+			throw new InvalidBoardException(board.NAME + ": row sums total " + rowTotal + " but column sums total " + colTotal);
+		}
+		if (rowTotal != fleetTiles) {
+			throw new InvalidBoardException(board.NAME + ": lane sums total " + rowTotal + " but the fleet has " + fleetTiles + " tiles");
+		}
+
+		int[][] ships = new int[2][size];		// Known ship tiles in each lane, indexed by lane then idx
+		int[][] blanks = new int[2][size];
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				Tile tile = board.TILES[i][j];
+				Value value = tile.getValue();
+				if (value == Value.BLANK) {
+					blanks[Lane.ROW.ordinal()][i]++;
+					blanks[Lane.COL.ordinal()][j]++;
+					continue;
+				}
+				if (value != Value.WATER) {
+					ships[Lane.ROW.ordinal()][i]++;
+					ships[Lane.COL.ordinal()][j]++;
+				}
+				checkNeighbors(board.NAME, tile);
+			}
+		}
+		for (Lane lane : Lane.values()) {
+			for (int idx = 0; idx < size; idx++) {
+				int sum = board.getSum(lane, idx);
+				int known = ships[lane.ordinal()][idx];
+				if (known > sum || known + blanks[lane.ordinal()][idx] < sum) {
+					throw new InvalidBoardException(board.NAME + ": " + lane + " " + idx + " cannot have " + sum
+							+ " ship tiles");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks that a Board holds a full and correct solution to its own sums and fleet
+	 * @param board - The solved Board, which is not changed
+	 * @throws InvalidBoardException if the solution is not complete and correct
+	 */
+	static void checkSolution(Board board) throws InvalidBoardException {
+		int size = board.SIZE;
+		Value[][] grid = new Value[size][size];
+		int[] rowSum = new int[size];
+		int[] colSum = new int[size];
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) grid[i][j] = board.TILES[i][j].getValue();
+			rowSum[i] = board.getSum(Lane.ROW, i);
+			colSum[i] = board.getSum(Lane.COL, i);
+		}
+		int[] fleet = new int[board.MAX_SHIP_SIZE];
+		for (int length = 1; length <= fleet.length; length++) fleet[length - 1] = board.getFleet(length);
+		checkSolution(board.NAME, grid, fleet, rowSum, colSum);
+	}
+
+	/**
+	 * Checks that a grid is a full and correct solution for lane sums and a fleet
+	 * @param name - The puzzle identifier, for the message
+	 * @param grid - The value of each tile, indexed by row then column
+	 * @param fleet - The number of ships of each size, where fleet[0] is the number of submarines
+	 * @param rowSum - The sums of ship tiles in each row
+	 * @param colSum - The sums of ship tiles in each column
+	 * @throws InvalidBoardException if the grid is not complete and correct
+	 */
+	static void checkSolution(String name, Value[][] grid, int[] fleet, int[] rowSum, int[] colSum)
+			throws InvalidBoardException {
+		int size = grid.length;
+		if (rowSum.length != size || colSum.length != size) {
+			throw new InvalidBoardException(name + ": expected " + size + " row and column sums");
+		}
+		int[] rows = new int[size];
+		int[] cols = new int[size];
+		for (int i = 0; i < size; i++) {
+			if (grid[i].length != size) throw new InvalidBoardException(name + ": expected " + size + " tiles in row " + i);
+			for (int j = 0; j < size; j++) {
+				Value value = grid[i][j];
+				if (value == Value.BLANK || value == Value.SHIP_UNID || value == Value.SHIP_MID) {
+					throw new InvalidBoardException(name + ": tile [" + i + "," + j + "] is not solved");
+				}
+				if (value != Value.WATER) {
+					rows[i]++;
+					cols[j]++;
+				}
+			}
+		}
+		for (int i = 0; i < size; i++) {
+			if (rows[i] != rowSum[i]) throw new InvalidBoardException(name + ": row " + i + " has " + rows[i] + " ship tiles, not " + rowSum[i]);
+			if (cols[i] != colSum[i]) throw new InvalidBoardException(name + ": column " + i + " has " + cols[i] + " ship tiles, not " + colSum[i]);
+		}
+
+		// Every pair of neighbors fits, so each ship runs from its first piece to a matching last piece
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				for (Dir dir : DIRS) {
+					int row = i + rowStep(dir);
+					int col = j + colStep(dir);
+					boolean inside = row >= 0 && row < size && col >= 0 && col < size;
+					if (inside && !isForward(dir)) continue;
+					Value neighbor = inside ? grid[row][col] : Value.WATER;
+					if (!DomainPropagator.compatible(grid[i][j], neighbor, dir)) {
+						throw new InvalidBoardException(name + ": tile [" + i + "," + j + "] does not fit its " + dir
+								+ " neighbor");
+					}
+				}
+			}
+		}
+
+		int[] found = new int[size];
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				int length = 0;
+				if (grid[i][j] == Value.SHIP_SUB) {
+					length = 1;
+				} else if (grid[i][j] == Value.SHIP_WEST) {
+					do length++; while (grid[i][j + length] != Value.SHIP_EAST);
+					length++;
+				} else if (grid[i][j] == Value.SHIP_NORTH) {
+					do length++; while (grid[i + length][j] != Value.SHIP_SOUTH);
+					length++;
+				}
+				if (length > 0) found[length - 1]++;
+			}
+		}
+		for (int length = 1; length <= Math.max(size, fleet.length); length++) {
+			int expected = length <= fleet.length ? fleet[length - 1] : 0;
+			int actual = length <= size ? found[length - 1] : 0;
+			if (expected != actual) {
+				throw new InvalidBoardException(name + ": found " + actual + " ships of size " + length + ", not " + expected);
+			}
+		}
+	}
+
+	//========== Private Methods ==========//
+
+	/**
+	 * Checks a known tile against each neighbor after it and against the edges of the Board
+	 */
+	private static void checkNeighbors(String name, Tile tile) throws InvalidBoardException {
+		for (Dir dir : DIRS) {
+			Tile neighbor = tile.getNeighbor(dir);
+			if (neighbor != null && !isForward(dir)) continue;
+			Value value = neighbor == null ? Value.WATER : neighbor.getValue();
+			if (!DomainPropagator.compatible(tile.getValue(), value, dir)) {
+				throw new InvalidBoardException(name + ": tile " + tile + " does not fit its " + dir + " neighbor");
+			}
+		}
+	}
+
+	private static boolean isForward(Dir dir) {
+		for (Dir forward : FORWARD) {
+			if (forward == dir) return true;
+		}
+		return false;
+	}
+
+	private static int rowStep(Dir dir) {
+		switch (dir) {
+			case NORTH: case NORTHEAST: case NORTHWEST: return -1;
+			case SOUTH: case SOUTHEAST: case SOUTHWEST: return 1;
+			default: return 0;
+		}
+	}
+
+	private static int colStep(Dir dir) {
+		switch (dir) {
+			case WEST: case NORTHWEST: case SOUTHWEST: return -1;
+			case EAST: case NORTHEAST: case SOUTHEAST: return 1;
+			default: return 0;
+		}
+	}
+}